@@ -0,0 +1,65 @@
+package com.groupstp.isdayoff;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.stream.Stream;
+
+/**
+ * Общее состояние бенчмарков: локальная заглушка сервиса и экземпляры IsDayOff с кэшем и без
+ */
+@State(Scope.Benchmark)
+public class IsDayOffBenchmarkState {
+    IsDayOffStubServer stub;
+    Path cacheDir;
+    IsDayOff cached;
+    IsDayOff uncached;
+    Date date;
+    Date rangeStart;
+    Date rangeEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stub = new IsDayOffStubServer();
+        cacheDir = Files.createTempDirectory("isdayoff-jmh");
+        cached = IsDayOff.Builder()
+                .setBaseUrl(stub.getBaseUrl())
+                .setCacheDir(cacheDir.toString())
+                .build();
+        uncached = IsDayOff.Builder()
+                .setBaseUrl(stub.getBaseUrl())
+                .setCache(false)
+                .build();
+        date = toDate(LocalDate.of(2021, 5, 12));
+        rangeStart = toDate(LocalDate.of(2021, 3, 1));
+        rangeEnd = toDate(LocalDate.of(2021, 9, 30));
+        cached.daysTypeByYear(date);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        stub.close();
+        deleteRecursively(cacheDir);
+    }
+
+    static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.groupstp.isdayoff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки чтения файлового кэша
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class IsDayOffCacheBenchmark {
+    private Path cacheDir;
+    private IsDayOffCache cache;
+    private Calendar rangeStart;
+    private Calendar rangeEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("isdayoff-jmh-cache");
+        cache = new IsDayOffCache(IsDayOff.Builder().setCacheDir(cacheDir.toString()));
+        cache.createCacheFile(IsDayOffStubServer.days(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 12, 31)), 2021);
+        rangeStart = Calendar.getInstance();
+        rangeStart.set(2021, Calendar.MARCH, 1);
+        rangeEnd = Calendar.getInstance();
+        rangeEnd.set(2021, Calendar.SEPTEMBER, 30);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        IsDayOffBenchmarkState.deleteRecursively(cacheDir);
+    }
+
+    @Benchmark
+    public boolean checkCacheFile() {
+        return cache.checkCacheFile(2021);
+    }
+
+    @Benchmark
+    public String getCachedDay() {
+        return cache.getCachedDay(2021, Calendar.MAY, 12);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getCachedDayThreads() {
+        return cache.getCachedDay(2021, Calendar.MAY, 12);
+    }
+
+    @Benchmark
+    public String getCachedDays() {
+        return cache.getCachedDays(rangeStart, rangeEnd);
+    }
+
+    @Benchmark
+    public IsDayOffYear readYear() {
+        return cache.readYear(2021);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public IsDayOffYear readYearThreads() {
+        return cache.readYear(2021);
+    }
+}
@@ -0,0 +1,53 @@
+package com.groupstp.isdayoff;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Сбои, которые заглушка сервиса добавляет к ответам getdata
+ * Доли задаются от 0 до 1 и проверяются независимо для каждого запроса
+ */
+public final class IsDayOffFaults {
+    /**
+     * Без сбоев
+     */
+    public static final IsDayOffFaults NONE = new IsDayOffFaults(0, 0, 0, 0, 0);
+
+    private final long latencyMillis;
+    private final double errorRate;
+    private final double timeoutRate;
+    private final long timeoutMillis;
+    private final double truncateRate;
+
+    /**
+     * @param latencyMillis Задержка каждого ответа
+     * @param errorRate Доля ответов 503
+     * @param timeoutRate Доля ответов, задержанных на timeoutMillis
+     * @param timeoutMillis Задержка ответа, имитирующего зависание сервиса
+     * @param truncateRate Доля ответов, оборванных на середине тела
+     */
+    public IsDayOffFaults(long latencyMillis, double errorRate, double timeoutRate, long timeoutMillis, double truncateRate) {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.timeoutRate = timeoutRate;
+        this.timeoutMillis = timeoutMillis;
+        this.truncateRate = truncateRate;
+    }
+
+    long delayMillis() {
+        return ThreadLocalRandom.current().nextDouble() < timeoutRate ? timeoutMillis : latencyMillis;
+    }
+
+    boolean isError() {
+        return ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    boolean isTruncated() {
+        return ThreadLocalRandom.current().nextDouble() < truncateRate;
+    }
+
+    @Override
+    public String toString() {
+        return "latency=" + latencyMillis + "ms, 5xx=" + errorRate + ", timeouts=" + timeoutRate
+                + " (" + timeoutMillis + "ms), truncated=" + truncateRate;
+    }
+}
@@ -0,0 +1,257 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import com.groupstp.isdayoff.enums.DirectionType;
+import com.groupstp.isdayoff.enums.LocalesType;
+import com.groupstp.isdayoff.enums.RefreshType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный тест: сотни одновременных вызывающих против локальной заглушки сервиса со сбоями
+ * Каждый сценарий выполняется в обычных и, если JVM их поддерживает, виртуальных потоках.
+ * Вызывающие выполняют dayType, daysTypeByRange и getFirstDayByType по случайным датам 2020-2024 годов.
+ * Для каждого прогона выводятся пропускная способность, перцентили задержки, кол-во ошибок и запросов к заглушке
+ * <pre>
+ *     ./gradlew :lib-jmh:loadTest -Pcallers=200 -Poperations=200
+ * </pre>
+ */
+public final class IsDayOffLoadTest {
+    private static final int FIRST_YEAR = 2020;
+    private static final int LAST_YEAR = 2024;
+    private static final int FLAGS = 8;
+
+    private final IsDayOffStubServer stub;
+    private final int callers;
+    private final int operations;
+    /**
+     * Номер набора параметров. Годы в памяти общие для всех экземпляров с одинаковыми параметрами,
+     * поэтому каждый прогон использует свой набор и не получает годы, загруженные другими прогонами
+     */
+    private int propertiesIndex;
+
+    private IsDayOffLoadTest(IsDayOffStubServer stub, int callers, int operations) {
+        this.stub = stub;
+        this.callers = callers;
+        this.operations = operations;
+    }
+
+    /**
+     * Аргументы: кол-во вызывающих потоков (по умолчанию 200), кол-во операций на поток (по умолчанию 200)
+     */
+    public static void main(String[] args) throws Exception {
+        int callers = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        try (IsDayOffStubServer stub = new IsDayOffStubServer()) {
+            new IsDayOffLoadTest(stub, callers, operations).runAll();
+        }
+    }
+
+    private void runAll() throws Exception {
+        List<Scenario> scenarios = Arrays.asList(
+                new Scenario("cold start", IsDayOffFaults.NONE, false, false, RefreshType.BLOCKING),
+                new Scenario("warm", IsDayOffFaults.NONE, true, false, RefreshType.BLOCKING),
+                new Scenario("expired, blocking", IsDayOffFaults.NONE, false, true, RefreshType.BLOCKING),
+                new Scenario("expired, background", IsDayOffFaults.NONE, false, true, RefreshType.BACKGROUND),
+                new Scenario("slow upstream", new IsDayOffFaults(200, 0, 0, 0, 0), false, false, RefreshType.BLOCKING),
+                new Scenario("faulty upstream", new IsDayOffFaults(20, 0.1, 0.02, 3000, 0.05), false, false, RefreshType.BLOCKING));
+        System.out.printf("callers=%d, operations per caller=%d, years %d-%d%n", callers, operations, FIRST_YEAR, LAST_YEAR);
+        System.out.printf("%-20s %-9s %8s %10s %9s %9s %9s %9s %7s %9s%n",
+                "scenario", "threads", "ops", "ops/s", "p50 us", "p90 us", "p99 us", "max us", "errors", "upstream");
+        for (Scenario scenario : scenarios) {
+            run(scenario, "platform", Executors.newFixedThreadPool(callers));
+            ExecutorService virtual = newVirtualExecutor();
+            if (virtual != null) {
+                run(scenario, "virtual", virtual);
+            } else {
+                System.out.printf("%-20s %-9s virtual threads are not available in this JVM%n", scenario.name, "virtual");
+            }
+        }
+    }
+
+    private void run(Scenario scenario, String threads, ExecutorService executor) throws Exception {
+        Path cacheDir = Files.createTempDirectory("isdayoff-load");
+        try {
+            IsDayOffBuilder builder = newBuilder(cacheDir, scenario);
+            if (scenario.expired) {
+                writeExpiredCache(cacheDir, new IsDayOffProps(builder));
+            }
+            stub.setFaults(IsDayOffFaults.NONE);
+            IsDayOff isDayOff = builder.build();
+            if (scenario.warm) {
+                for (int year = FIRST_YEAR; year <= LAST_YEAR; year++) {
+                    isDayOff.dayType(LocalDate.of(year, 1, 1));
+                }
+            }
+            stub.setFaults(scenario.faults);
+            long requestsBefore = stub.getRequestCount();
+            Result result = execute(isDayOff, executor);
+            long upstream = stub.getRequestCount() - requestsBefore;
+            long[] latencies = result.latencies;
+            Arrays.sort(latencies);
+            System.out.printf("%-20s %-9s %8d %10.0f %9d %9d %9d %9d %7d %9d%n",
+                    scenario.name, threads, latencies.length,
+                    latencies.length / (result.elapsedNanos / 1e9),
+                    percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                    latencies[latencies.length - 1] / 1000,
+                    result.errors, upstream);
+        } finally {
+            executor.shutdownNow();
+            IsDayOffBenchmarkState.deleteRecursively(cacheDir);
+        }
+    }
+
+    /**
+     * Все вызывающие стартуют одновременно, как при наплыве запросов после запуска
+     */
+    private Result execute(IsDayOff isDayOff, ExecutorService executor) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong errors = new AtomicLong();
+        long[] latencies = new long[callers * operations];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int caller = 0; caller < callers; caller++) {
+            int first = caller * operations;
+            long seed = caller;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < operations; i++) {
+                    long begin = System.nanoTime();
+                    if (!call(isDayOff, random)) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[first + i] = System.nanoTime() - begin;
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.MINUTES);
+        }
+        return new Result(latencies, System.nanoTime() - begin, errors.get());
+    }
+
+    /**
+     * Одна операция: 70% dayType, 20% daysTypeByRange до 90 дней, 10% getFirstDayByType
+     * @return false, если библиотека не смогла ответить
+     */
+    private static boolean call(IsDayOff isDayOff, Random random) {
+        LocalDate date = randomDate(random);
+        int operation = random.nextInt(10);
+        try {
+            if (operation < 7) {
+                return isDayOff.dayType(date) != DayType.SERVER_ERROR;
+            }
+            if (operation < 9) {
+                LocalDate end = date.plusDays(random.nextInt(90));
+                if (end.getYear() > LAST_YEAR) {
+                    end = LocalDate.of(LAST_YEAR, 12, 31);
+                }
+                return isDayOff.daysTypeByRange(IsDayOffBenchmarkState.toDate(date), IsDayOffBenchmarkState.toDate(end)) != null;
+            }
+            Date found = isDayOff.getFirstDayByType(IsDayOffBenchmarkState.toDate(date), DayType.NOT_WORKING_DAY, DirectionType.FUTURE);
+            return found != null;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static LocalDate randomDate(Random random) {
+        long first = LocalDate.of(FIRST_YEAR, 1, 1).toEpochDay();
+        long last = LocalDate.of(LAST_YEAR, 12, 31).toEpochDay();
+        return LocalDate.ofEpochDay(first + random.nextInt((int) (last - first + 1)));
+    }
+
+    private IsDayOffBuilder newBuilder(Path cacheDir, Scenario scenario) {
+        int index = propertiesIndex++;
+        IsDayOffBuilder builder = IsDayOff.Builder()
+                .setBaseUrl(stub.getBaseUrl())
+                .setCacheDir(cacheDir.toString())
+                .setRefreshType(scenario.refreshType)
+                .setRequestTimeout(Duration.ofSeconds(1))
+                .setLocale(LocalesType.values()[index / FLAGS % LocalesType.values().length]);
+        if ((index & 1) != 0) {
+            builder.addPreHolidaysDay();
+        }
+        if ((index & 2) != 0) {
+            builder.addCovidWorkingDays();
+        }
+        if ((index & 4) != 0) {
+            builder.setSixDaysWorkWeek();
+        }
+        return builder;
+    }
+
+    /**
+     * Файлы кэша за все годы, полученные 60 дней назад, при сроке хранения 30 дней
+     */
+    private static void writeExpiredCache(Path cacheDir, IsDayOffProps properties) {
+        IsDayOffTextStorage storage = new IsDayOffTextStorage(cacheDir.toString());
+        long fetchedAt = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(60);
+        for (int year = FIRST_YEAR; year <= LAST_YEAR; year++) {
+            String days = IsDayOffStubServer.days(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+            storage.storeYear(properties, IsDayOffYear.parse(year, days, fetchedAt));
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1000;
+    }
+
+    /**
+     * Виртуальные потоки есть начиная с Java 21, модуль собирается для более ранних версий
+     * @return Пул или null, если JVM не поддерживает виртуальные потоки
+     */
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static final class Scenario {
+        private final String name;
+        private final IsDayOffFaults faults;
+        private final boolean warm;
+        private final boolean expired;
+        private final RefreshType refreshType;
+
+        Scenario(String name, IsDayOffFaults faults, boolean warm, boolean expired, RefreshType refreshType) {
+            this.name = name;
+            this.faults = faults;
+            this.warm = warm;
+            this.expired = expired;
+            this.refreshType = refreshType;
+        }
+    }
+
+    private static final class Result {
+        private final long[] latencies;
+        private final long elapsedNanos;
+        private final long errors;
+
+        Result(long[] latencies, long elapsedNanos, long errors) {
+            this.latencies = latencies;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки публичных методов IsDayOff
+ * Методы с суффиксом Threads выполняются в 4 потока
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IsDayOffLookupBenchmark {
+
+    @Benchmark
+    public DayType dayTypeCached(IsDayOffBenchmarkState state) {
+        return state.cached.dayType(state.date);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DayType dayTypeCachedThreads(IsDayOffBenchmarkState state) {
+        return state.cached.dayType(state.date);
+    }
+
+    @Benchmark
+    public List<IsDayOffDateType> daysTypeByYear(IsDayOffBenchmarkState state) {
+        return state.cached.daysTypeByYear(state.date);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<IsDayOffDateType> daysTypeByYearThreads(IsDayOffBenchmarkState state) {
+        return state.cached.daysTypeByYear(state.date);
+    }
+
+    @Benchmark
+    public List<IsDayOffDateType> daysTypeByRange(IsDayOffBenchmarkState state) {
+        return state.cached.daysTypeByRange(state.rangeStart, state.rangeEnd);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<IsDayOffDateType> daysTypeByRangeThreads(IsDayOffBenchmarkState state) {
+        return state.cached.daysTypeByRange(state.rangeStart, state.rangeEnd);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public DayType dayTypeNetwork(IsDayOffBenchmarkState state) {
+        return state.uncached.dayType(state.date);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public DayType dayTypeNetworkThreads(IsDayOffBenchmarkState state) {
+        return state.uncached.dayType(state.date);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<IsDayOffDateType> daysTypeByRangeNetwork(IsDayOffBenchmarkState state) {
+        return state.uncached.daysTypeByRange(state.rangeStart, state.rangeEnd);
+    }
+}
@@ -0,0 +1,66 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки разбора ответа сервиса и типов дней
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class IsDayOffParseBenchmark {
+    @Param({"0", "1", "4", "199"})
+    public String id;
+
+    private String yearResponse;
+
+    @Setup
+    public void setUp() {
+        yearResponse = IsDayOffStubServer.days(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 12, 31));
+    }
+
+    @Benchmark
+    public List<IsDayOffDateType> parseArrayResponseToList() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2021, Calendar.JANUARY, 1);
+        return IsDayOff.parseArrayResponseToList(yearResponse, calendar);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<IsDayOffDateType> parseArrayResponseToListThreads() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2021, Calendar.JANUARY, 1);
+        return IsDayOff.parseArrayResponseToList(yearResponse, calendar);
+    }
+
+    @Benchmark
+    public DayType dayTypeFromId() {
+        return DayType.fromId(id);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DayType dayTypeFromIdThreads() {
+        return DayType.fromId(id);
+    }
+
+    @Benchmark
+    public IsDayOffYear parseYear() {
+        return IsDayOffYear.parse(2021, yearResponse, 0);
+    }
+}
@@ -0,0 +1,189 @@
+package com.groupstp.isdayoff;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная заглушка сервиса isdayoff.ru
+ * Отдает заранее вычисленные данные: выходные - суббота, воскресенье и 1-8 января.
+ * Может добавлять к ответам задержки и сбои.
+ * Без -Dsun.net.httpserver.nodelay=true каждый короткий ответ задерживается на ~40 мс. Настройка общая для JVM,
+ * поэтому заглушка ее не меняет: ее задают задачи jmh и loadTest
+ * @see IsDayOffFaults
+ */
+public class IsDayOffStubServer implements AutoCloseable {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final HttpServer server;
+    private final AtomicLong requestCount = new AtomicLong();
+    private volatile IsDayOffFaults faults;
+
+    public IsDayOffStubServer() throws IOException {
+        this(IsDayOffFaults.NONE);
+    }
+
+    public IsDayOffStubServer(IsDayOffFaults faults) throws IOException {
+        this.faults = faults;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/getdata", this::getData);
+        server.createContext("/api/isleap", this::isLeap);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "isdayoff-stub");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    /**
+     * Адрес для IsDayOffBuilder.setBaseUrl
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/";
+    }
+
+    /**
+     * Кол-во запросов, полученных заглушкой
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Заменить сбои для следующих запросов
+     */
+    public void setFaults(IsDayOffFaults faults) {
+        this.faults = faults;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Тип дня в заглушке
+     */
+    public static char dayId(LocalDate date) {
+        if (date.getDayOfYear() <= 8) {
+            return '1';
+        }
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY ? '1' : '0';
+    }
+
+    /**
+     * Данные за отрезок в формате ответа сервиса
+     * @param from Первый день
+     * @param to Последний день, включительно
+     */
+    public static String days(LocalDate from, LocalDate to) {
+        StringBuilder result = new StringBuilder();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            result.append(dayId(date));
+        }
+        return result.toString();
+    }
+
+    private void getData(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        Map<String, String> params = params(exchange.getRequestURI());
+        String response;
+        try {
+            if (params.containsKey("date1")) {
+                LocalDate from = LocalDate.parse(params.get("date1"), DATE_FORMAT);
+                LocalDate to = LocalDate.parse(params.get("date2"), DATE_FORMAT);
+                response = days(from, to);
+            } else {
+                int year = Integer.parseInt(params.get("year"));
+                if (params.containsKey("month")) {
+                    int month = Integer.parseInt(params.get("month"));
+                    if (params.containsKey("day")) {
+                        LocalDate date = LocalDate.of(year, month, Integer.parseInt(params.get("day")));
+                        response = String.valueOf(dayId(date));
+                    } else {
+                        LocalDate from = LocalDate.of(year, month, 1);
+                        response = days(from, from.plusMonths(1).minusDays(1));
+                    }
+                } else {
+                    response = days(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+                }
+            }
+        } catch (RuntimeException e) {
+            send(exchange, 400, "100");
+            return;
+        }
+        IsDayOffFaults current = faults;
+        long delay = current.delayMillis();
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (current.isError()) {
+            send(exchange, 503, "199");
+        } else if (current.isTruncated()) {
+            sendTruncated(exchange, response);
+        } else {
+            send(exchange, 200, response);
+        }
+    }
+
+    /**
+     * Заголовок с полной длиной, половина тела и разрыв соединения
+     */
+    private static void sendTruncated(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes, 0, bytes.length / 2);
+        out.flush();
+        // Записано меньше байт, чем указано в заголовке: сервер закрывает соединение
+        exchange.close();
+    }
+
+    private void isLeap(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        int year = Integer.parseInt(params(exchange.getRequestURI()).get("year"));
+        send(exchange, 200, Year.isLeap(year) ? "1" : "0");
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> params(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+        return params;
+    }
+}
@@ -0,0 +1,58 @@
+package com.groupstp.isdayoff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IsDayOffServerTest {
+    private static final String[] REQUESTS = {
+            "getdata?year=2024",
+            "getdata?year=2023",
+            "getdata?year=2024&month=2",
+            "getdata?year=2023&month=12",
+            "getdata?year=2024&month=2&day=29",
+            "getdata?year=2024&month=1&day=8",
+            "getdata?date1=20240301&date2=20240305",
+            "getdata?date1=20231225&date2=20240110",
+            "getdata?date1=20221230&date2=20240102",
+            "getdata?year=2023&month=2&day=29",
+            "getdata?year=abc",
+            "isleap?year=2024",
+            "isleap?year=2023",
+    };
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Сервер с заглушкой в качестве сервиса отвечает теми же байтами и статусами, что и сама заглушка
+     */
+    @Test
+    void responsesMatchUpstream() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        try (IsDayOffStubServer stub = new IsDayOffStubServer();
+             IsDayOffServer server = new IsDayOffServer(() -> IsDayOff.Builder()
+                     .setBaseUrl(stub.getBaseUrl())
+                     .setCacheDir(dir.toString()), new InetSocketAddress("127.0.0.1", 0))) {
+            for (String request : REQUESTS) {
+                HttpResponse<byte[]> expected = get(client, stub.getBaseUrl() + request);
+                HttpResponse<byte[]> actual = get(client, server.getBaseUrl() + request);
+                assertEquals(expected.statusCode(), actual.statusCode(), request);
+                assertArrayEquals(expected.body(), actual.body(), request);
+            }
+        }
+    }
+
+    private static HttpResponse<byte[]> get(HttpClient client, String url) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,326 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+
+import javax.annotation.Nullable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Неизменяемый отрезок подряд идущих дней с их типами
+ * Хранит только упакованные коды дней (2 бита на день), первый день отрезка и время дня для дат элементов.
+ * Объекты IsDayOffDateType и даты создаются только при обращении к ним.
+ * Сравнение - как у любого List: поэлементно, по дате и типу дня
+ */
+public final class DayTypeSeries extends AbstractList<IsDayOffDateType> implements RandomAccess {
+    private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+            | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+
+    private final long startEpochDay;
+    private final int size;
+    private final byte[] packed;
+    private final LocalTime timeOfDay;
+
+    private DayTypeSeries(long startEpochDay, int size, byte[] packed, LocalTime timeOfDay) {
+        this.startEpochDay = startEpochDay;
+        this.size = size;
+        this.packed = packed;
+        this.timeOfDay = timeOfDay;
+    }
+
+    /**
+     * Отрезок из ответа сервиса
+     * @param response Строка из id типов дней, по символу на день
+     * @param startEpochDay Первый день отрезка, как номер дня от 1970-01-01
+     * @return Отрезок или null, если ответ не является списком типов дней
+     */
+    @Nullable
+    static DayTypeSeries parse(@Nullable String response, long startEpochDay) {
+        if (response == null) {
+            return null;
+        }
+        byte[] packed = new byte[IsDayOffYear.packedSize(response.length())];
+        for (int i = 0; i < response.length(); i++) {
+            int code;
+            switch (response.charAt(i)) {
+                case '0': code = 0; break;
+                case '1': code = 1; break;
+                case '2': code = 2; break;
+                case '4': code = 3; break;
+                default: return null;
+            }
+            packed[i >> 2] |= code << ((i & 3) << 1);
+        }
+        return new DayTypeSeries(startEpochDay, response.length(), packed, LocalTime.MIDNIGHT);
+    }
+
+    /**
+     * Отрезок из данных года
+     * @param year Данные года
+     * @param from Первый день отрезка, начиная с 0
+     * @param to День, следующий за последним днем отрезка
+     */
+    static DayTypeSeries of(IsDayOffYear year, int from, int to) {
+        byte[] packed = new byte[IsDayOffYear.packedSize(to - from)];
+        for (int i = from; i < to; i++) {
+            int index = i - from;
+            packed[index >> 2] |= year.getCode(i) << ((index & 3) << 1);
+        }
+        return new DayTypeSeries(IsDayOffYear.firstEpochDay(year.getYear()) + from, to - from, packed, LocalTime.MIDNIGHT);
+    }
+
+    /**
+     * Склейка идущих подряд отрезков
+     * @param parts Отрезки в порядке следования
+     */
+    static DayTypeSeries concat(List<DayTypeSeries> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        int size = 0;
+        for (DayTypeSeries part : parts) {
+            size += part.size;
+        }
+        byte[] packed = new byte[IsDayOffYear.packedSize(size)];
+        int index = 0;
+        for (DayTypeSeries part : parts) {
+            for (int i = 0; i < part.size; i++, index++) {
+                packed[index >> 2] |= part.getPackedCode(i) << ((index & 3) << 1);
+            }
+        }
+        return new DayTypeSeries(parts.get(0).startEpochDay, size, packed, parts.get(0).timeOfDay);
+    }
+
+    /**
+     * Тот же отрезок, у дат элементов которого указанное время дня
+     * @param timeOfDay Время дня в часовом поясе по умолчанию
+     */
+    DayTypeSeries atTime(LocalTime timeOfDay) {
+        return new DayTypeSeries(startEpochDay, size, packed, timeOfDay);
+    }
+
+    private int getPackedCode(int index) {
+        return (packed[index >> 2] >> ((index & 3) << 1)) & 3;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * День отрезка с датой и типом. Объект создается при каждом вызове
+     * Время даты в часовом поясе по умолчанию - как у даты, переданной в запрос
+     */
+    @Override
+    public IsDayOffDateType get(int index) {
+        return new IsDayOffDateType(Date.from(getDate(index).atTime(timeOfDay).atZone(ZoneId.systemDefault()).toInstant()), getDayType(index));
+    }
+
+    /**
+     * Тип дня без создания объектов
+     * @param index Номер дня в отрезке, начиная с 0
+     */
+    public DayType getDayType(int index) {
+        checkIndex(index);
+        return IsDayOffYear.typeOf(getPackedCode(index));
+    }
+
+    /**
+     * Код типа дня
+     * @param index Номер дня в отрезке, начиная с 0
+     * @see com.groupstp.isdayoff.enums.DayType#getCode()
+     */
+    public byte getCode(int index) {
+        return getDayType(index).getCode();
+    }
+
+    /**
+     * Номер дня от 1970-01-01
+     * @param index Номер дня в отрезке, начиная с 0
+     */
+    public long getEpochDay(int index) {
+        checkIndex(index);
+        return startEpochDay + index;
+    }
+
+    /**
+     * Дата дня
+     * @param index Номер дня в отрезке, начиная с 0
+     */
+    public LocalDate getDate(int index) {
+        return LocalDate.ofEpochDay(getEpochDay(index));
+    }
+
+    /**
+     * Кол-во рабочих дней в отрезке
+     * @see com.groupstp.isdayoff.enums.DayType#isWorkingDay()
+     */
+    public int countWorkingDays() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (getPackedCode(i) != 1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Коды типов дней по порядку
+     * Поток делится для параллельной обработки
+     * @see com.groupstp.isdayoff.enums.DayType#getCode()
+     */
+    public IntStream codes() {
+        return StreamSupport.intStream(new CodeSpliterator(0, size), false);
+    }
+
+    /**
+     * Типы дней по порядку
+     */
+    public Stream<DayType> dayTypes() {
+        return codes().mapToObj(code -> DayType.fromByte((byte) code));
+    }
+
+    /**
+     * Даты дней по порядку
+     */
+    public Stream<LocalDate> dates() {
+        return StreamSupport.intStream(new IndexSpliterator(0, size), false).mapToObj(this::getDate);
+    }
+
+    @Override
+    public Spliterator<IsDayOffDateType> spliterator() {
+        return new DateTypeSpliterator(0, size);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Номера дней отрезка, делится пополам
+     */
+    private static class IndexSpliterator implements Spliterator.OfInt {
+        int from;
+        final int to;
+
+        IndexSpliterator(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        int value(int index) {
+            return index;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int mid = (from + to) >>> 1;
+            if (mid <= from) {
+                return null;
+            }
+            OfInt prefix = create(from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        OfInt create(int from, int to) {
+            return new IndexSpliterator(from, to);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (from >= to) {
+                return false;
+            }
+            action.accept(value(from++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            for (; from < to; from++) {
+                action.accept(value(from));
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    /**
+     * Коды типов дней, делится пополам
+     */
+    private class CodeSpliterator extends IndexSpliterator {
+        CodeSpliterator(int from, int to) {
+            super(from, to);
+        }
+
+        @Override
+        int value(int index) {
+            return IsDayOffYear.typeOf(getPackedCode(index)).getCode();
+        }
+
+        @Override
+        OfInt create(int from, int to) {
+            return new CodeSpliterator(from, to);
+        }
+    }
+
+    /**
+     * Дни с датой и типом, делится пополам
+     */
+    private class DateTypeSpliterator implements Spliterator<IsDayOffDateType> {
+        private final IndexSpliterator indexes;
+
+        DateTypeSpliterator(int from, int to) {
+            this.indexes = new IndexSpliterator(from, to);
+        }
+
+        private DateTypeSpliterator(IndexSpliterator indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super IsDayOffDateType> action) {
+            return indexes.tryAdvance((IntConsumer) index -> action.accept(get(index)));
+        }
+
+        @Override
+        public Spliterator<IsDayOffDateType> trySplit() {
+            IndexSpliterator prefix = (IndexSpliterator) indexes.trySplit();
+            return prefix != null ? new DateTypeSpliterator(prefix) : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return indexes.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+}
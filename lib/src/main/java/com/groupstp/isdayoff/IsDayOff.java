@@ -2,29 +2,58 @@ package com.groupstp.isdayoff;
 
 import com.groupstp.isdayoff.enums.DayType;
 import com.groupstp.isdayoff.enums.DirectionType;
+import com.groupstp.isdayoff.enums.LookupSourceType;
+import com.groupstp.isdayoff.enums.RefreshType;
 
 import javax.annotation.Nullable;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 /**
  * Основной класс библиотеки
  * Позволяет получить тип дня по датам
  */
 public class IsDayOff {
-    private final String baseUrl = "https://isdayoff.ru/api/";
+    private final String baseUrl;
     private String userAgent = "isdayoff-java-lib/";
 
     private final IsDayOffProps properties;
     private final IsDayOffCache cache;
+    private final IsDayOffIndex index;
+    private final IsDayOffOverlay overlay;
+    private final IsDayOffHttpClient http;
+    @Nullable
+    private final IsDayOffPlanner planner;
+    /**
+     * Запрос отрезка дат для планировщика. Один объект на экземпляр, чтобы планировщик различал экземпляры
+     */
+    private final BiFunction<LocalDate, LocalDate, CompletableFuture<String>> upstream = this::requestDays;
+    private final Executor executor;
+    private final int searchHorizonDays;
+    private final int maxParallelFetches;
+    @Nullable
+    private final IsDayOffRefresher refresher;
+    private final IsDayOffToday today;
+    @Nullable
+    private final IsDayOffListener listener;
+    /**
+     * Годы из снимка, которые используются без проверки срока хранения
+     */
+    private final IsDayOffYear[] snapshotYears = new IsDayOffYear[IsDayOffIndex.MAX_YEAR - IsDayOffIndex.MIN_YEAR + 1];
+    private final CompletableFuture<IsDayOff> ready;
 
     public static void main(String[] args) {
         IsDayOff build = IsDayOff.Builder().build();
@@ -44,43 +73,142 @@ public class IsDayOff {
     }
 
     protected IsDayOff(IsDayOffBuilder builder) {
+        this(builder, false);
+    }
+
+    /**
+     * @param builder Параметры
+     * @param async true - годы для прогрева загружаются в фоне, конструктор не ждет сети и диска
+     * @see IsDayOffBuilder#buildAsync()
+     */
+    protected IsDayOff(IsDayOffBuilder builder, boolean async) {
         properties = new IsDayOffProps(builder);
+        baseUrl = builder.getBaseUrl().endsWith("/") ? builder.getBaseUrl() : builder.getBaseUrl() + "/";
         cache = new IsDayOffCache(builder);
+        index = IsDayOffIndex.shared(builder);
+        overlay = properties.getOverlay();
 
         String version = getClass().getPackage().getImplementationVersion();
         if (version == null) {
             version = "DEVELOP";
         }
         userAgent += version;
+        http = new IsDayOffHttpClient(builder, userAgent);
+        planner = builder.getPlanner();
+        executor = builder.getExecutor() != null ? builder.getExecutor() : ForkJoinPool.commonPool();
+        searchHorizonDays = builder.getSearchHorizonDays();
+        maxParallelFetches = Math.max(1, builder.getMaxParallelFetches());
+        listener = builder.getListener();
+        if (cache.isCached() && builder.getRefreshType() == RefreshType.BACKGROUND) {
+            refresher = new IsDayOffRefresher(builder, this::fetchYearAsync, index::get);
+        } else {
+            refresher = null;
+        }
+        today = new IsDayOffToday(this::loadYear, index::get, executor, listener);
+        if (cache.isCached()) {
+            loadSnapshot(builder);
+        }
+        ready = warmup(builder, async);
+    }
 
-        Calendar calendar = Calendar.getInstance();
-        if (cache.isCached() && !cache.checkCacheFile(calendar.get(Calendar.YEAR))) {
-            String response = buildUrlAndSendRequest(calendar.get(Calendar.YEAR), null, null);
-            cache.createCacheFile(response, calendar.get(Calendar.YEAR));
+    /**
+     * Загрузка годов с warmupYearsBefore лет назад до warmupYearsAfter лет вперед от текущего
+     * Каждый год загружается через индекс, поэтому запрос дня во время прогрева ждет только свой год
+     */
+    private CompletableFuture<IsDayOff> warmup(IsDayOffBuilder builder, boolean async) {
+        if (!cache.isCached()) {
+            return CompletableFuture.completedFuture(this);
+        }
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        List<CompletableFuture<IsDayOffYear>> years = new ArrayList<>();
+        for (int year = currentYear - builder.getWarmupYearsBefore(); year <= currentYear + builder.getWarmupYearsAfter(); year++) {
+            years.add(async ? getYearAsync(year) : CompletableFuture.completedFuture(getYear(year)));
         }
+        return CompletableFuture.allOf(years.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> this);
     }
 
     /**
-     * Тип сегодняшнего дня
+     * Готовность экземпляра
+     * Завершается, когда загружены все годы для прогрева, даже если какие-то из них получить не удалось.
+     * Для экземпляра, созданного через build(), уже завершена
+     * @return Этот экземпляр после прогрева
+     * @see IsDayOffBuilder#buildAsync()
+     */
+    public CompletableFuture<IsDayOff> ready() {
+        return ready;
+    }
+
+    /**
+     * Положить годы из снимка в память, если там нет более свежих данных
+     */
+    private void loadSnapshot(IsDayOffBuilder builder) {
+        IsDayOffBinaryStore snapshot = IsDayOffSnapshot.load(builder);
+        if (snapshot == null) {
+            return;
+        }
+        for (int year : snapshot.listYears(properties)) {
+            IsDayOffYear data = overlay.apply(snapshot.loadYear(properties, year));
+            if (data == null || year < IsDayOffIndex.MIN_YEAR || year > IsDayOffIndex.MAX_YEAR) {
+                continue;
+            }
+            IsDayOffYear current = index.get(year);
+            if (current != null && current.getFetchedAt() >= data.getFetchedAt()) {
+                continue;
+            }
+            if (builder.getSnapshotRefresh()) {
+                remember(data);
+            } else {
+                snapshotYears[year - IsDayOffIndex.MIN_YEAR] = data;
+                index.put(data);
+            }
+        }
+    }
+
+    /**
+     * Тип сегодняшнего дня в часовом поясе JVM по умолчанию
      * @return Тип текущего дня
      * @see com.groupstp.isdayoff.enums.DayType
      */
     public DayType todayType() {
-        Calendar today = Calendar.getInstance();
-        String response = getResponseByDate(today.get(Calendar.YEAR), today.get(Calendar.MONTH), today.get(Calendar.DAY_OF_MONTH));
-        return DayType.fromId(response);
+        return todayType(ZoneId.systemDefault());
+    }
+
+    /**
+     * Тип сегодняшнего дня в часовом поясе
+     * При включенном кэше значение для пояса вычисляется заранее и заменяется в местную полночь,
+     * поэтому частые вызовы не выполняют поиск
+     * @param zone Часовой пояс
+     * @return Тип текущего дня в этом поясе
+     * @see com.groupstp.isdayoff.enums.DayType
+     */
+    public DayType todayType(ZoneId zone) {
+        if (cache.isCached()) {
+            return today.today(zone);
+        }
+        return dayType(LocalDate.now(zone));
     }
 
     /**
-     * Тип завтрашнего дня
+     * Тип завтрашнего дня в часовом поясе JVM по умолчанию
      * @return Тип завтрашнего дня
      * @see com.groupstp.isdayoff.enums.DayType
      */
     public DayType tomorrowType() {
-        Calendar tomorrow = Calendar.getInstance();
-        tomorrow.add(Calendar.DAY_OF_YEAR, 1);
-        String response = getResponseByDate(tomorrow.get(Calendar.YEAR), tomorrow.get(Calendar.MONTH), tomorrow.get(Calendar.DAY_OF_MONTH));
-        return DayType.fromId(response);
+        return tomorrowType(ZoneId.systemDefault());
+    }
+
+    /**
+     * Тип завтрашнего дня в часовом поясе
+     * @param zone Часовой пояс
+     * @return Тип завтрашнего дня в этом поясе
+     * @see #todayType(ZoneId)
+     * @see com.groupstp.isdayoff.enums.DayType
+     */
+    public DayType tomorrowType(ZoneId zone) {
+        if (cache.isCached()) {
+            return today.tomorrow(zone);
+        }
+        return dayType(LocalDate.now(zone).plusDays(1));
     }
 
     /**
@@ -92,196 +220,757 @@ public class IsDayOff {
     public DayType dayType(Date date) {
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(date);
-        String response = getResponseByDate(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
-        return DayType.fromId(response);
+        return dayType(calendar);
+    }
+
+    /**
+     * Тип конкретного дня
+     * При включенном кэше и загруженном годе не выделяет память
+     * Дни вне поддерживаемых годов (1900-2199) при включенном кэше получают DayType.ERROR_DATE без запроса к сервису
+     * @param date день, который нужно проверить
+     * @return Тип этого дня
+     * @see com.groupstp.isdayoff.enums.DayType
+     */
+    public DayType dayType(LocalDate date) {
+        if (cache.isCached()) {
+            return cachedDayType(date.getYear(), date.getDayOfYear() - 1);
+        }
+        return overlay.apply(date.toEpochDay(), toDayType(getResponseByDate(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth())));
+    }
+
+    /**
+     * Тип конкретного дня
+     * При включенном кэше и загруженном годе не выделяет память
+     * Дни вне поддерживаемых годов (1900-2199) при включенном кэше получают DayType.ERROR_DATE без запроса к сервису
+     * @param epochDay день, который нужно проверить, как номер дня от 1970-01-01
+     * @return Тип этого дня
+     * @see java.time.LocalDate#toEpochDay()
+     * @see com.groupstp.isdayoff.enums.DayType
+     */
+    public DayType dayType(int epochDay) {
+        if (cache.isCached()) {
+            int year = IsDayOffYear.yearOfEpochDay(epochDay);
+            return cachedDayType(year, (int) (epochDay - IsDayOffYear.firstEpochDay(year)));
+        }
+        return dayType(LocalDate.ofEpochDay(epochDay));
+    }
+
+    /**
+     * Типы дней для массива дат
+     * Каждый год загружается один раз, большие массивы обрабатываются параллельно
+     * Дни, тип которых определить не удалось, получают код DayType.SERVER_ERROR,
+     * а дни вне поддерживаемых годов - DayType.ERROR_DATE
+     * @param epochDays дни, которые нужно проверить, как номера дней от 1970-01-01
+     * @param out массив для кодов типов дней, не короче epochDays
+     * @return Кол-во дней, тип которых определить не удалось
+     * @see com.groupstp.isdayoff.enums.DayType#getCode()
+     */
+    public int classify(int[] epochDays, byte[] out) {
+        if (out.length < epochDays.length) {
+            throw new IllegalArgumentException("Output array is shorter than input");
+        }
+        return newClassifier().classify(epochDays, out);
+    }
+
+    /**
+     * Типы дней для массива дат
+     * Каждый год загружается один раз, большие массивы обрабатываются параллельно
+     * Дни, тип которых определить не удалось, получают тип DayType.SERVER_ERROR,
+     * а дни вне поддерживаемых годов и null - DayType.ERROR_DATE
+     * @param dates дни, которые нужно проверить
+     * @param out массив для типов дней, не короче dates
+     * @return Кол-во дней, тип которых определить не удалось
+     * @see com.groupstp.isdayoff.enums.DayType
+     */
+    public int classify(LocalDate[] dates, DayType[] out) {
+        if (out.length < dates.length) {
+            throw new IllegalArgumentException("Output array is shorter than input");
+        }
+        return newClassifier().classify(dates, out);
+    }
+
+    private IsDayOffClassifier newClassifier() {
+        ForkJoinPool pool = executor instanceof ForkJoinPool ? (ForkJoinPool) executor : ForkJoinPool.commonPool();
+        return new IsDayOffClassifier(this::loadYear, pool);
+    }
+
+    /**
+     * Тип конкретного дня без блокировки вызывающего потока
+     * @param date день, который нужно проверить
+     * @return Тип этого дня
+     * @see com.groupstp.isdayoff.enums.DayType
+     */
+    public CompletableFuture<DayType> dayTypeAsync(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return dayTypeAsync(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Тип конкретного дня без блокировки вызывающего потока
+     * @param date день, который нужно проверить
+     * @return Тип этого дня
+     * @see com.groupstp.isdayoff.enums.DayType
+     */
+    public CompletableFuture<DayType> dayTypeAsync(LocalDate date) {
+        return dayTypeAsync(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    private CompletableFuture<DayType> dayTypeAsync(int year, int month, int day) {
+        if (cache.isCached()) {
+            if (!IsDayOffIndex.isSupported(year)) {
+                return CompletableFuture.completedFuture(DayType.ERROR_DATE);
+            }
+            int dayOfYear = LocalDate.of(year, month, day).getDayOfYear() - 1;
+            return getYearAsync(year).thenApply(data -> data != null ? data.getDayType(dayOfYear) : DayType.SERVER_ERROR);
+        }
+        long epochDay = LocalDate.of(year, month, day).toEpochDay();
+        return http.requestAsync(buildDateUrl(year, month, day)).thenApply(response -> overlay.apply(epochDay, toDayType(response)));
+    }
+
+    private DayType dayType(Calendar calendar) {
+        if (cache.isCached()) {
+            return cachedDayType(calendar.get(Calendar.YEAR), calendar.get(Calendar.DAY_OF_YEAR) - 1);
+        }
+        return dayType(LocalDate.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)));
+    }
+
+    /**
+     * Тип дня из ответа сервиса
+     * @return Тип дня или DayType.SERVER_ERROR, если ответ не получен или не является типом дня
+     */
+    private static DayType toDayType(@Nullable String response) {
+        DayType dayType = response != null ? DayType.fromId(response) : null;
+        return dayType != null ? dayType : DayType.SERVER_ERROR;
+    }
+
+    private DayType cachedDayType(int year, int dayOfYear) {
+        if (!IsDayOffIndex.isSupported(year)) {
+            return DayType.ERROR_DATE;
+        }
+        IsDayOffYear data = getYear(year);
+        if (data == null) {
+            return DayType.SERVER_ERROR;
+        }
+        return data.getDayType(dayOfYear);
     }
 
     /**
      * Тип всех дней конкретного месяца
      * @param date месяц, который нужно проверить
-     * @return Массив IsDayOffDateType с датой и типом для каждого дня месяца
+     * @return Отрезок с типом для каждого дня месяца
      * @see com.groupstp.isdayoff.IsDayOffDateType
      */
-    public List<IsDayOffDateType> daysTypeByMonth(Date date) {
+    public DayTypeSeries daysTypeByMonth(Date date) {
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(date);
         calendar.set(Calendar.DAY_OF_MONTH, 1);
+        if (cache.isCached()) {
+            return atTime(monthFromYear(getYear(calendar.get(Calendar.YEAR)), calendar), calendar);
+        }
         String response = getResponseByDate(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), null);
-        return parseArrayResponseToList(response, calendar);
+        return atTime(parseDays(response, calendar), calendar);
+    }
+
+    /**
+     * Тип всех дней конкретного месяца без блокировки вызывающего потока
+     * @param date месяц, который нужно проверить
+     * @return Отрезок с типом для каждого дня месяца
+     * @see com.groupstp.isdayoff.IsDayOffDateType
+     */
+    public CompletableFuture<DayTypeSeries> daysTypeByMonthAsync(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        if (cache.isCached()) {
+            return getYearAsync(calendar.get(Calendar.YEAR)).thenApply(year -> atTime(monthFromYear(year, calendar), calendar));
+        }
+        String url = buildDateUrl(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, null);
+        return http.requestAsync(url).thenApply(response -> atTime(parseDays(response, calendar), calendar));
+    }
+
+    @Nullable
+    private DayTypeSeries monthFromYear(@Nullable IsDayOffYear year, Calendar calendar) {
+        if (year == null) {
+            return null;
+        }
+        int firstDay = calendar.get(Calendar.DAY_OF_YEAR) - 1;
+        return DayTypeSeries.of(year, firstDay, firstDay + calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
     }
 
     /**
      * Тип всех дней конкретного года
      * @param date год, для которого нужно провести проверку
-     * @return Массив IsDayOffDateType с датой и типом для каждого дня года
+     * @return Отрезок с типом для каждого дня года
      * @see com.groupstp.isdayoff.IsDayOffDateType
      */
-    public List<IsDayOffDateType> daysTypeByYear(Date date) {
+    public DayTypeSeries daysTypeByYear(Date date) {
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(date);
         calendar.set(Calendar.DAY_OF_MONTH, 1);
         calendar.set(Calendar.MONTH, 0);
+        if (cache.isCached()) {
+            return atTime(yearToList(getYear(calendar.get(Calendar.YEAR))), calendar);
+        }
         String response = getResponseByDate(calendar.get(Calendar.YEAR), null, null);
-        return parseArrayResponseToList(response, calendar);
+        return atTime(parseDays(response, calendar), calendar);
+    }
+
+    /**
+     * Тип всех дней конкретного года без блокировки вызывающего потока
+     * @param date год, для которого нужно провести проверку
+     * @return Отрезок с типом для каждого дня года
+     * @see com.groupstp.isdayoff.IsDayOffDateType
+     */
+    public CompletableFuture<DayTypeSeries> daysTypeByYearAsync(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.MONTH, 0);
+        if (cache.isCached()) {
+            return getYearAsync(calendar.get(Calendar.YEAR)).thenApply(year -> atTime(yearToList(year), calendar));
+        }
+        String url = buildDateUrl(calendar.get(Calendar.YEAR), null, null);
+        return http.requestAsync(url).thenApply(response -> atTime(parseDays(response, calendar), calendar));
+    }
+
+    /**
+     * Отрезок, у дат элементов которого время дня - как у даты запроса, как и в прежних версиях
+     */
+    @Nullable
+    private static DayTypeSeries atTime(@Nullable DayTypeSeries series, Calendar calendar) {
+        if (series == null) {
+            return null;
+        }
+        return series.atTime(LocalTime.of(calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE),
+                calendar.get(Calendar.SECOND), (int) TimeUnit.MILLISECONDS.toNanos(calendar.get(Calendar.MILLISECOND))));
+    }
+
+    @Nullable
+    private DayTypeSeries yearToList(@Nullable IsDayOffYear year) {
+        if (year == null) {
+            return null;
+        }
+        return DayTypeSeries.of(year, 0, year.length());
     }
 
     /**
      * Проверка года на високосность
+     * Определяется по григорианскому календарю, как и в сервисе. Сетевой запрос не выполняется,
+     * поэтому результат не зависит от доступности сервиса и никогда не бывает null
      * @param date год
      * @return true, если год високосный и false - если нет
      */
-    @Nullable
     public Boolean checkIsLeap(Date date) {
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(date);
-        String response = request(baseUrl + "isleap?year=" + calendar.get(Calendar.YEAR));
-        if (response == null || response.equals("0")) {
-            return false;
-        }
-        if (response.equals("1")) {
-            return true;
-        }
-        return null;
+        return Year.isLeap(calendar.get(Calendar.YEAR));
+    }
+
+    /**
+     * Проверка года на високосность без блокировки вызывающего потока
+     * @param date год
+     * @return true, если год високосный и false - если нет
+     */
+    public CompletableFuture<Boolean> checkIsLeapAsync(Date date) {
+        return CompletableFuture.completedFuture(checkIsLeap(date));
     }
 
     /**
      * Проверка отрезка дат
+     * Отрезок любой длины делится на годы, каждый год берется из кэша,
+     * недостающие годы запрашиваются параллельно, не больше maxParallelFetches одновременно
+     * @param startDate  Начало отрезка
+     * @param endDate Конец
+     * @return Отрезок с типом для каждого дня отрезка
+     * @see com.groupstp.isdayoff.IsDayOffDateType
+     * @see com.groupstp.isdayoff.IsDayOffBuilder#setMaxParallelFetches(Integer)
+     */
+    public DayTypeSeries daysTypeByRange(Date startDate, Date endDate) {
+        return daysTypeByRangeAsync(startDate, endDate).join();
+    }
+
+    /**
+     * Проверка отрезка дат без блокировки вызывающего потока
      * @param startDate  Начало отрезка
      * @param endDate Конец
-     * @return Массив IsDayOffDateType с датой и типом для каждого дня отрезка
+     * @return Отрезок с типом для каждого дня отрезка
      * @see com.groupstp.isdayoff.IsDayOffDateType
      */
-    public List<IsDayOffDateType> daysTypeByRange(Date startDate, Date endDate) {
+    public CompletableFuture<DayTypeSeries> daysTypeByRangeAsync(Date startDate, Date endDate) {
         if (startDate.after(endDate)) {
             //Искл
-            return null;
-        }
-
-        long diffInMillies = Math.abs(endDate.getTime() - startDate.getTime());
-        long diffInDays = TimeUnit.DAYS.convert(diffInMillies, TimeUnit.MILLISECONDS);
-        if (diffInDays > 365) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
         Calendar calendarStartDate = Calendar.getInstance();
         calendarStartDate.setTime(startDate);
         Calendar calendarEndDate = Calendar.getInstance();
         calendarEndDate.setTime(endDate);
+        LocalDate start = LocalDate.of(calendarStartDate.get(Calendar.YEAR), calendarStartDate.get(Calendar.MONTH) + 1, calendarStartDate.get(Calendar.DAY_OF_MONTH));
+        LocalDate end = LocalDate.of(calendarEndDate.get(Calendar.YEAR), calendarEndDate.get(Calendar.MONTH) + 1, calendarEndDate.get(Calendar.DAY_OF_MONTH));
+
+        List<Supplier<CompletableFuture<DayTypeSeries>>> segments = new ArrayList<>();
+        for (int y = start.getYear(); y <= end.getYear(); y++) {
+            LocalDate segmentStart = y == start.getYear() ? start : LocalDate.of(y, 1, 1);
+            LocalDate segmentEnd = y == end.getYear() ? end : LocalDate.of(y, 12, 31);
+            segments.add(() -> getSegment(segmentStart, segmentEnd));
+        }
+        return joinSegments(segments).thenApply(series -> atTime(series, calendarStartDate));
+    }
+
+    /**
+     * Типы дней отрезка внутри одного года
+     * При включенном кэше берется из данных года, иначе запрашивается у сервиса
+     */
+    private CompletableFuture<DayTypeSeries> getSegment(LocalDate start, LocalDate end) {
+        if (cache.isCached()) {
+            return getYearAsync(start.getYear())
+                    .thenApply(year -> year != null ? DayTypeSeries.of(year, start.getDayOfYear() - 1, end.getDayOfYear()) : null);
+        }
+        return http.requestAsync(buildRangeUrl(start, end)).thenApply(response -> DayTypeSeries.parse(overlay.apply(response, start.toEpochDay()), start.toEpochDay()));
+    }
+
+    /**
+     * Получение отрезков пачками не больше maxParallelFetches и склейка результатов по порядку
+     * @return Склеенный отрезок или null, если хотя бы один отрезок получить не удалось
+     */
+    private CompletableFuture<DayTypeSeries> joinSegments(List<Supplier<CompletableFuture<DayTypeSeries>>> segments) {
+        CompletableFuture<List<DayTypeSeries>> result = CompletableFuture.completedFuture(new ArrayList<>());
+        for (int i = 0; i < segments.size(); i += maxParallelFetches) {
+            List<Supplier<CompletableFuture<DayTypeSeries>>> batch = segments.subList(i, Math.min(i + maxParallelFetches, segments.size()));
+            result = result.thenCompose(parts -> {
+                List<CompletableFuture<DayTypeSeries>> futures = new ArrayList<>();
+                for (Supplier<CompletableFuture<DayTypeSeries>> segment : batch) {
+                    futures.add(segment.get());
+                }
+                return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+                    for (CompletableFuture<DayTypeSeries> future : futures) {
+                        parts.add(future.join());
+                    }
+                    return parts;
+                });
+            });
+        }
+        return result.thenApply(parts -> parts.contains(null) ? null : DayTypeSeries.concat(parts));
+    }
 
-        if (cache.isCached() &&
-                calendarStartDate.get(Calendar.YEAR) == calendarEndDate.get(Calendar.YEAR) &&
-                cache.checkCacheFile(calendarStartDate.get(Calendar.YEAR))) {
-            String cachedDays = cache.getCachedDays(calendarStartDate, calendarEndDate);
-            if (!cachedDays.equals("")) {
-                return parseArrayResponseToList(cachedDays, calendarStartDate);
+    /**
+     * Кол-во рабочих дней на отрезке
+     * Рабочими считаются рабочие, сокращенные дни и рабочие дни в пандемию
+     * @param startDate Начало отрезка, включительно
+     * @param endDate Конец отрезка, не включительно
+     * @return Кол-во рабочих дней. Если конец раньше начала - отрицательное число.
+     * null, если не удалось получить данные за один из годов
+     * @see com.groupstp.isdayoff.enums.DayType#isWorkingDay()
+     */
+    @Nullable
+    public Integer workingDaysBetween(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            Integer count = workingDaysBetween(endDate, startDate);
+            return count != null ? -count : null;
+        }
+        int count = 0;
+        for (int y = startDate.getYear(); y <= endDate.getYear(); y++) {
+            IsDayOffYear year = loadYear(y);
+            if (year == null) {
+                return null;
             }
+            int from = y == startDate.getYear() ? startDate.getDayOfYear() - 1 : 0;
+            int to = y == endDate.getYear() ? endDate.getDayOfYear() - 1 : year.length();
+            count += year.countWorkingDays(from, to);
         }
+        return count;
+    }
 
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyyMMdd");
-        String startDateStr = simpleDateFormat.format(startDate);
-        String endDateStr = simpleDateFormat.format(endDate);
-        String response = getResponseByRange(startDateStr, endDateStr);
+    /**
+     * Дата через указанное кол-во рабочих дней
+     * Сам день отсчета не учитывается
+     * @param date День, относительно которого начинать отсчет
+     * @param days Кол-во рабочих дней. Отрицательное значение - отсчет в прошлое
+     * @return Рабочий день, наступающий через days рабочих дней после date.
+     * null, если не удалось получить данные за один из годов
+     */
+    @Nullable
+    public LocalDate addWorkingDays(LocalDate date, int days) {
+        if (days < 0) {
+            return subtractWorkingDays(date, -days);
+        }
+        if (days == 0) {
+            return date;
+        }
+        int y = date.getYear();
+        IsDayOffYear year = loadYear(y);
+        if (year == null) {
+            return null;
+        }
+        int number = year.countWorkingDays(0, date.getDayOfYear()) + days;
+        while (number > year.getWorkingDays()) {
+            number -= year.getWorkingDays();
+            year = loadYear(++y);
+            if (year == null) {
+                return null;
+            }
+        }
+        return LocalDate.ofYearDay(y, year.indexOfWorkingDay(number) + 1);
+    }
 
-        return parseArrayResponseToList(response, calendarStartDate);
+    /**
+     * Дата за указанное кол-во рабочих дней до дня отсчета
+     * Сам день отсчета не учитывается
+     * @param date День, относительно которого начинать отсчет
+     * @param days Кол-во рабочих дней. Отрицательное значение - отсчет в будущее
+     * @return Рабочий день, который был за days рабочих дней до date.
+     * null, если не удалось получить данные за один из годов
+     */
+    @Nullable
+    public LocalDate subtractWorkingDays(LocalDate date, int days) {
+        if (days < 0) {
+            return addWorkingDays(date, -days);
+        }
+        if (days == 0) {
+            return date;
+        }
+        int y = date.getYear();
+        IsDayOffYear year = loadYear(y);
+        if (year == null) {
+            return null;
+        }
+        int before = year.countWorkingDays(0, date.getDayOfYear() - 1);
+        while (before < days) {
+            days -= before;
+            year = loadYear(--y);
+            if (year == null) {
+                return null;
+            }
+            before = year.getWorkingDays();
+        }
+        return LocalDate.ofYearDay(y, year.indexOfWorkingDay(before - days + 1) + 1);
     }
 
     /**
      * Получить первый день по типу
+     * Поиск идет скачками по отрезкам дней одного типа и ограничен searchHorizonDays днями
      * @param date День, относительно которого начинать отсчет
      * @param dayType Тип дня, который нужно получить
      * @param directionType Направление(Искать в прошлом или будущем)
-     * @return Первый день, подходящий под условие
+     * @return Первый день, подходящий под условие, или null, если такого дня нет в пределах горизонта поиска
+     * @see com.groupstp.isdayoff.IsDayOffBuilder#setSearchHorizonDays(Integer)
      */
+    @Nullable
     public Date getFirstDayByType(Date date, DayType dayType, DirectionType directionType) {
-        int direction = 0;
-        switch (directionType) {
-            case PAST: direction = -1; break;
-            case FUTURE: direction = 1; break;
-        }
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(date);
-        while (!dayType(calendar.getTime()).equals(dayType)) {
-            calendar.add(Calendar.DAY_OF_YEAR, direction);
+        int y = calendar.get(Calendar.YEAR);
+        int day = calendar.get(Calendar.DAY_OF_YEAR) - 1;
+        IsDayOffYear year = loadYear(y);
+        int offset = 0;
+        while (year != null && offset <= searchHorizonDays) {
+            if (year.getDayType(day) == dayType) {
+                calendar.add(Calendar.DAY_OF_YEAR, directionType == DirectionType.PAST ? -offset : offset);
+                return calendar.getTime();
+            }
+            if (directionType == DirectionType.PAST) {
+                int previous = year.getRunStart(day) - 1;
+                offset += day - previous;
+                if (previous < 0) {
+                    year = loadYear(--y);
+                    day = year != null ? year.length() - 1 : 0;
+                } else {
+                    day = previous;
+                }
+            } else {
+                int next = year.getRunEnd(day);
+                offset += next - day;
+                if (next == year.length()) {
+                    year = loadYear(++y);
+                    day = 0;
+                } else {
+                    day = next;
+                }
+            }
         }
-        return calendar.getTime();
+        return null;
     }
 
     /**
      * Количество дней подряд по типу
+     * Подсчет идет скачками по отрезкам дней одного типа и ограничен searchHorizonDays днями
      * @param date День, относительно которого начинать отсчет
      * @param dayType Тип дня
      * @param directionType Направление(Искать в прошлом или будущем)
-     * @return Кол-во дней, включая день отсчета
+     * @return Кол-во дней, включая день отсчета, но не больше горизонта поиска
+     * @see com.groupstp.isdayoff.IsDayOffBuilder#setSearchHorizonDays(Integer)
      */
     public int getCountDaysByType(Date date, DayType dayType, DirectionType directionType) {
-        int direction = 0;
-        switch (directionType) {
-            case PAST: direction = -1; break;
-            case FUTURE: direction = 1; break;
-        }
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(date);
+        int y = calendar.get(Calendar.YEAR);
+        int day = calendar.get(Calendar.DAY_OF_YEAR) - 1;
+        IsDayOffYear year = loadYear(y);
         int countDaysByType = 0;
-        while (dayType(calendar.getTime()).equals(dayType)) {
-            calendar.add(Calendar.DAY_OF_YEAR, direction);
-            countDaysByType++;
+        while (year != null && countDaysByType < searchHorizonDays && year.getDayType(day) == dayType) {
+            if (directionType == DirectionType.PAST) {
+                int start = year.getRunStart(day);
+                countDaysByType += day - start + 1;
+                if (start > 0) {
+                    break;
+                }
+                year = loadYear(--y);
+                day = year != null ? year.length() - 1 : 0;
+            } else {
+                int end = year.getRunEnd(day);
+                countDaysByType += end - day;
+                if (end < year.length()) {
+                    break;
+                }
+                year = loadYear(++y);
+                day = 0;
+            }
         }
-        return countDaysByType;
+        return Math.min(countDaysByType, searchHorizonDays);
     }
 
-    private List<IsDayOffDateType> parseArrayResponseToList(String response, Calendar startDate) {
-        List<IsDayOffDateType> result = new ArrayList<>();
-        char[] days = response.toCharArray();
-        for (char day : days) {
-            DayType dayType = DayType.fromId(String.valueOf(day));
-            result.add(new IsDayOffDateType(startDate.getTime(), dayType));
-            startDate.add(Calendar.DAY_OF_MONTH, 1);
-        }
-        return result;
+    /**
+     * Разбор ответа сервиса в отрезок дней
+     * @param response Строка из id типов дней
+     * @param startDate Первый день отрезка. Не изменяется
+     * @return Отрезок или null, если ответ не является списком типов дней
+     */
+    @Nullable
+    static DayTypeSeries parseArrayResponseToList(@Nullable String response, Calendar startDate) {
+        LocalDate start = LocalDate.of(startDate.get(Calendar.YEAR), startDate.get(Calendar.MONTH) + 1, startDate.get(Calendar.DAY_OF_MONTH));
+        return DayTypeSeries.parse(response, start.toEpochDay());
+    }
+
+    /**
+     * Разбор ответа сервиса в отрезок дней с собственными правилами
+     * @see #parseArrayResponseToList(String, Calendar)
+     */
+    @Nullable
+    private DayTypeSeries parseDays(@Nullable String response, Calendar startDate) {
+        LocalDate start = LocalDate.of(startDate.get(Calendar.YEAR), startDate.get(Calendar.MONTH) + 1, startDate.get(Calendar.DAY_OF_MONTH));
+        return parseArrayResponseToList(overlay.apply(response, start.toEpochDay()), startDate);
     }
 
-    private String getResponseByRange(String startDate, String endDate) {
+    private String buildRangeUrl(LocalDate startDate, LocalDate endDate) {
         StringBuilder url = new StringBuilder(baseUrl).append("getdata?");
-        if (startDate == null || endDate == null) {
-            //Вызывать исключение
-            return "199";
-        }
-        url.append("date1=").append(startDate).append("&date2=").append(endDate).append("&");
+        url.append("date1=").append(startDate.format(DateTimeFormatter.BASIC_ISO_DATE))
+                .append("&date2=").append(endDate.format(DateTimeFormatter.BASIC_ISO_DATE)).append("&");
         appendProperties(url);
+        return url.toString();
+    }
 
-        return request(url.toString());
+    /**
+     * Получить данные года
+     * Сначала год ищется в памяти, затем в файле кэша и только потом запрашивается у сервиса
+     * Одновременные вызовы для одного года ждут одну загрузку
+     * @param year Год
+     * @return Данные года или null, если получить их не удалось или год вне поддерживаемых
+     */
+    @Nullable
+    private IsDayOffYear getYear(int year) {
+        if (!IsDayOffIndex.isSupported(year)) {
+            return null;
+        }
+        IsDayOffYear cached = index.get(year);
+        if (cached != null && (isUsable(cached) || http.isCircuitOpen())) {
+            if (listener != null) {
+                listener.onLookup(properties, year, LookupSourceType.MEMORY, true);
+            }
+            return cached;
+        }
+        if (listener != null) {
+            listener.onLookup(properties, year, LookupSourceType.MEMORY, false);
+        }
+        return index.load(year, () -> cache.exclusive(year, executor, () -> CompletableFuture.completedFuture(readOrFetchYear(year)))).join();
     }
 
-    private Calendar buildCalendar(int year, int month, int day) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(year, month - 1, day);
-        return calendar;
+    @Nullable
+    private IsDayOffYear readOrFetchYear(int year) {
+        IsDayOffYear cached = index.get(year);
+        if (cached != null && (isUsable(cached) || http.isCircuitOpen())) {
+            return cached;
+        }
+        IsDayOffYear loaded = overlay.apply(cache.readYear(year));
+        boolean actual = loaded != null && isUsable(loaded);
+        if (listener != null) {
+            listener.onLookup(properties, year, LookupSourceType.DISK, actual);
+        }
+        if (actual) {
+            remember(loaded);
+            return loaded;
+        }
+        IsDayOffYear fetched = storeYear(year, requestYear(year));
+        return fetched != null ? fetched : stale(year, loaded);
     }
 
-    private String getResponseByDate(Integer year, Integer month, Integer day) {
+    /**
+     * Получить данные года независимо от настроек кэша
+     * При выключенном кэше год запрашивается у сервиса и нигде не сохраняется
+     * @param year Год
+     * @return Данные года или null, если получить их не удалось или год вне поддерживаемых
+     */
+    @Nullable
+    IsDayOffYear loadYear(int year) {
+        if (!IsDayOffIndex.isSupported(year)) {
+            return null;
+        }
         if (cache.isCached()) {
-            if (!cache.checkCacheFile(year)) {
-                String response = buildUrlAndSendRequest(year, null, null);
-                DayType dayType = DayType.fromId(response);
-                if (DayType.ERROR_DATE.equals(dayType) || DayType.NOT_FOUND.equals(dayType) || DayType.SERVER_ERROR.equals(dayType)) {
-                    return response;
-                }
-                cache.createCacheFile(response, year);
+            return getYear(year);
+        }
+        IsDayOffYear loaded = IsDayOffYear.parse(year, requestYear(year), System.currentTimeMillis());
+        if (listener != null) {
+            listener.onLookup(properties, year, LookupSourceType.NETWORK, loaded != null);
+        }
+        return overlay.apply(loaded);
+    }
+
+    /**
+     * Получить данные года без блокировки вызывающего потока
+     * Файл кэша читается в пуле потоков, запрос к сервису выполняется асинхронно
+     * @param year Год
+     * @return Данные года или null, если получить их не удалось или год вне поддерживаемых
+     */
+    private CompletableFuture<IsDayOffYear> getYearAsync(int year) {
+        if (!IsDayOffIndex.isSupported(year)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        IsDayOffYear cached = index.get(year);
+        if (cached != null && (isUsable(cached) || http.isCircuitOpen())) {
+            if (listener != null) {
+                listener.onLookup(properties, year, LookupSourceType.MEMORY, true);
             }
-            return cache.getCachedDay(year, month, day);
+            return CompletableFuture.completedFuture(cached);
         }
+        if (listener != null) {
+            listener.onLookup(properties, year, LookupSourceType.MEMORY, false);
+        }
+        return index.load(year, () -> cache.exclusive(year, executor, () -> CompletableFuture.supplyAsync(() -> overlay.apply(cache.readYear(year)), executor).thenCompose(loaded -> {
+            boolean actual = loaded != null && isUsable(loaded);
+            if (listener != null) {
+                listener.onLookup(properties, year, LookupSourceType.DISK, actual);
+            }
+            if (actual) {
+                remember(loaded);
+                return CompletableFuture.completedFuture(loaded);
+            }
+            return requestYearAsync(year).thenApply(response -> {
+                IsDayOffYear fetched = storeYear(year, response);
+                return fetched != null ? fetched : stale(year, loaded);
+            });
+        })));
+    }
 
-        return buildUrlAndSendRequest(year, month + 1, day);
+    /**
+     * Последние известные данные года, когда сервис недоступен
+     * Используются даже после истечения срока хранения, чтобы при сбое сервиса не ждать сеть на каждом запросе.
+     * Пока цепь разомкнута, такой год берется из памяти без чтения файла
+     * @param year Год
+     * @param loaded Год из файла кэша
+     * @return Более свежие из данных в памяти и в файле или null, если данных нет
+     */
+    @Nullable
+    private IsDayOffYear stale(int year, @Nullable IsDayOffYear loaded) {
+        IsDayOffYear cached = index.get(year);
+        if (loaded != null && (cached == null || cached.getFetchedAt() < loaded.getFetchedAt())) {
+            index.put(loaded);
+            return loaded;
+        }
+        return cached;
     }
 
-    private String buildUrlAndSendRequest(Integer year, Integer month, Integer day) {
-        StringBuilder url = new StringBuilder(baseUrl).append("getdata?");
-        if (year != null) {
-            url.append("year=").append(year).append("&");
-        } else {
-            //Вызывать исключение
-            return "199";
+    /**
+     * Сохранить полученный от сервиса год в файл кэша и в память
+     * В кэш сохраняются данные сервиса, в память - с собственными правилами
+     * @param year Год
+     * @param response Ответ сервиса
+     * @return Данные года или null, если ответ не является данными за год
+     */
+    @Nullable
+    private IsDayOffYear storeYear(int year, @Nullable String response) {
+        IsDayOffYear loaded = IsDayOffYear.parse(year, response, System.currentTimeMillis());
+        if (listener != null) {
+            listener.onLookup(properties, year, LookupSourceType.NETWORK, loaded != null);
+        }
+        if (loaded == null) {
+            return null;
         }
+        cache.writeYear(loaded);
+        IsDayOffYear merged = overlay.apply(loaded);
+        remember(merged);
+        return merged;
+    }
+
+    /**
+     * Запросить год у сервиса, минуя файл кэша. Используется для фонового обновления
+     * Не объединяется с загрузками читателей: они могут вернуть устаревшие данные с диска.
+     * Одновременные обновления года экземплярами с общим индексом объединяются в один запрос
+     */
+    private CompletableFuture<IsDayOffYear> fetchYearAsync(int year) {
+        return index.refresh(year, () -> requestYearAsync(year).thenApply(response -> storeYear(year, response)));
+    }
+
+    /**
+     * Положить год в память и, в режиме фонового обновления, запланировать его обновление
+     */
+    private void remember(IsDayOffYear year) {
+        index.put(year);
+        if (refresher != null) {
+            refresher.schedule(year);
+        }
+    }
+
+    /**
+     * Можно ли отдавать данные года без обращения к сервису
+     * В режиме фонового обновления устаревшие данные тоже используются, пока идет обновление.
+     * Годы из снимка используются без проверки срока хранения, если их обновление не включено
+     */
+    private boolean isUsable(IsDayOffYear year) {
+        return refresher != null || cache.isActual(year) || isFromSnapshot(year);
+    }
+
+    private boolean isFromSnapshot(IsDayOffYear year) {
+        int i = year.getYear() - IsDayOffIndex.MIN_YEAR;
+        return i >= 0 && i < snapshotYears.length && snapshotYears[i] == year;
+    }
+
+    /**
+     * Запрос года у сервиса, через планировщик, если он указан
+     * @return Строка с id типов дней года или null, если получить ее не удалось
+     */
+    @Nullable
+    private String requestYear(int year) {
+        if (planner != null) {
+            return requestYearAsync(year).join();
+        }
+        return http.request(buildDateUrl(year, null, null));
+    }
+
+    private CompletableFuture<String> requestYearAsync(int year) {
+        if (planner != null) {
+            return planner.requestYear(baseUrl, properties, year, upstream);
+        }
+        return http.requestAsync(buildDateUrl(year, null, null));
+    }
+
+    /**
+     * Запрос отрезка дат от планировщика. Ровно один год запрашивается как год, несколько - как date1/date2
+     */
+    private CompletableFuture<String> requestDays(LocalDate from, LocalDate to) {
+        if (from.getYear() == to.getYear()) {
+            return http.requestAsync(buildDateUrl(from.getYear(), null, null));
+        }
+        return http.requestAsync(buildRangeUrl(from, to));
+    }
+
+    private String getResponseByDate(int year, Integer month, Integer day) {
+        return http.request(buildDateUrl(year, month != null ? month + 1 : null, day));
+    }
+
+    private String buildDateUrl(int year, Integer month, Integer day) {
+        StringBuilder url = new StringBuilder(baseUrl).append("getdata?");
+        url.append("year=").append(year).append("&");
         if (month != null) {
             url.append("month=").append(month).append("&");
         }
@@ -289,8 +978,7 @@ public class IsDayOff {
             url.append("day=").append(day).append("&");
         }
         appendProperties(url);
-
-        return request(url.toString());
+        return url.toString();
     }
 
     private void appendProperties(StringBuilder url) {
@@ -300,24 +988,4 @@ public class IsDayOff {
                 .append("covid=").append(properties.getCovidWorkingDays()).append("&")
                 .append("sd=").append(properties.getSixDaysWorkWeek());
     }
-
-
-    private String request(String url) {
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("User-Agent", userAgent)
-                .build();
-        try {
-                HttpResponse response = client.send(request, HttpResponse.BodyHandlers.ofString());
-                String result = null;
-            	if(response.statusCode() == 200) 
-            		result = response.body().toString();
-            		
-            	return result;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
 }
@@ -0,0 +1,533 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import com.groupstp.isdayoff.enums.LocalesType;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Бинарный кэш в одном файле, отображаемом в память
+ * Хранит годы для всех стран и наборов параметров
+ *
+ * Формат файла:
+ * заголовок (32 байта) - сигнатура IDOF, версия, размер записи, кол-во записей;
+ * записи по 128 байт - страна, флаги, год, кол-во дней, время получения данных,
+ * CRC32, поколение записи и 92 байта упакованных кодов дней (2 бита на день).
+ * Для каждого ключа используется не больше двух записей: новая версия года пишется в запасную запись
+ * ключа, поэтому при обновлениях файл не растет.
+ *
+ * Файл можно использовать из нескольких процессов: запись года выполняется под блокировкой файла
+ * и перед записью каталог перечитывается, поэтому процессы не занимают одни и те же записи.
+ * Годы, записанные другим процессом, становятся видны после следующей записи или повторного открытия файла
+ */
+public class IsDayOffBinaryStore implements IsDayOffStorage {
+    static final int MAGIC = 0x49444F46;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 128;
+
+    private static final int COUNT_OFFSET = 8;
+    private static final int RECORD_LOCALE = 0;
+    private static final int RECORD_FLAGS = 2;
+    private static final int RECORD_YEAR = 4;
+    private static final int RECORD_LENGTH = 6;
+    private static final int RECORD_FETCHED_AT = 8;
+    private static final int RECORD_CHECKSUM = 16;
+    private static final int RECORD_GENERATION = 20;
+    private static final int RECORD_DATA = 24;
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Байт, который блокируется на время записи. Лежит за пределами данных, поэтому блокировка
+     * не мешает чтению файла другими процессами ни на одной платформе
+     */
+    private static final long LOCK_POSITION = Long.MAX_VALUE - 1;
+
+    private static final Map<String, IsDayOffBinaryStore> OPENED = new ConcurrentHashMap<>();
+
+    @Nullable
+    private final FileChannel channel;
+    private final boolean created;
+    /**
+     * Отображение файла вместе с каталогом записей. Читатели берут ссылку один раз и работают без блокировок
+     */
+    private volatile Mapping mapping;
+
+    /**
+     * Открыть файл кэша. Для одного пути всегда возвращается один и тот же экземпляр
+     * @param file Файл
+     * @return Хранилище
+     * @throws IOException если файл не удалось открыть или он поврежден
+     */
+    public static IsDayOffBinaryStore open(File file) throws IOException {
+        try {
+            return OPENED.computeIfAbsent(file.getCanonicalPath(), path -> {
+                FileChannel channel = null;
+                try {
+                    channel = new RandomAccessFile(path, "rw").getChannel();
+                    return new IsDayOffBinaryStore(channel);
+                } catch (IOException e) {
+                    closeQuietly(channel, e);
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Хранилище только для чтения поверх уже загруженных данных
+     * @param data Содержимое файла кэша
+     */
+    public static IsDayOffBinaryStore readOnly(ByteBuffer data) throws IOException {
+        return new IsDayOffBinaryStore(data);
+    }
+
+    private IsDayOffBinaryStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        FileLock lock = channel.lock(LOCK_POSITION, 1, false);
+        try {
+            long size = channel.size();
+            created = size < HEADER_SIZE || !isValidHeader(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE));
+            ByteBuffer buffer;
+            if (created) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE);
+                buffer.putInt(0, MAGIC);
+                buffer.putShort(4, VERSION);
+                buffer.putShort(6, (short) RECORD_SIZE);
+                buffer.putInt(COUNT_OFFSET, 0);
+            } else {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            mapping = new Mapping(buffer, Directory.read(buffer));
+        } finally {
+            lock.release();
+        }
+    }
+
+    private static void closeQuietly(@Nullable FileChannel channel, IOException error) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            error.addSuppressed(e);
+        }
+    }
+
+    private IsDayOffBinaryStore(ByteBuffer data) throws IOException {
+        this.channel = null;
+        this.created = false;
+        if (data.limit() < HEADER_SIZE || !isValidHeader(data)) {
+            throw new IOException("Invalid IsDayOff binary cache");
+        }
+        ByteBuffer buffer = data.asReadOnlyBuffer();
+        mapping = new Mapping(buffer, Directory.read(buffer));
+    }
+
+    private static boolean isValidHeader(ByteBuffer header) {
+        return header.getInt(0) == MAGIC && header.getShort(4) == VERSION && header.getShort(6) == RECORD_SIZE;
+    }
+
+    /**
+     * Ключ записи: страна, флаги и год
+     */
+    static int key(IsDayOffProps properties, int year) {
+        String locale = properties.getLocale().getId();
+        return key(locale.charAt(0), locale.charAt(1), flags(properties), year);
+    }
+
+    private static int key(int firstLocaleChar, int secondLocaleChar, int flags, int year) {
+        return firstLocaleChar << 24 | secondLocaleChar << 16 | flags << 12 | (year & 0xFFF);
+    }
+
+    /**
+     * Флаги параметров: сокращенные дни, COVID, шестидневка
+     */
+    static int flags(IsDayOffProps properties) {
+        return properties.getPreHolidaysDay()
+                | properties.getCovidWorkingDays() << 1
+                | properties.getSixDaysWorkWeek() << 2;
+    }
+
+    /**
+     * Тип дня напрямую из отображенного файла, без разбора и выделения памяти
+     * @param properties Параметры
+     * @param year Год
+     * @param dayOfYear Номер дня в году, начиная с 0
+     * @return Тип дня или null, если года нет в кэше
+     */
+    @Nullable
+    public DayType getDayType(IsDayOffProps properties, int year, int dayOfYear) {
+        Mapping current = mapping;
+        ByteBuffer data = current.buffer;
+        int offset = current.directory.find(key(properties, year));
+        if (offset < 0 || dayOfYear >= data.getShort(offset + RECORD_LENGTH)) {
+            return null;
+        }
+        int code = (data.get(offset + RECORD_DATA + (dayOfYear >> 2)) >> ((dayOfYear & 3) << 1)) & 3;
+        return IsDayOffYear.typeOf(code);
+    }
+
+    /**
+     * Прочитать год
+     * @param properties Параметры
+     * @param year Год
+     * @return Данные года или null, если года нет в кэше или запись повреждена
+     */
+    @Nullable
+    @Override
+    public IsDayOffYear loadYear(IsDayOffProps properties, int year) {
+        Mapping current = mapping;
+        ByteBuffer data = current.buffer;
+        int offset = current.directory.find(key(properties, year));
+        if (offset < 0) {
+            return null;
+        }
+        byte[] packed = readPacked(data, offset);
+        if (packed == null) {
+            return null;
+        }
+        return IsDayOffYear.fromPacked(year, packed, data.getLong(offset + RECORD_FETCHED_AT));
+    }
+
+    /**
+     * Упакованные коды дней записи
+     * @return Коды дней или null, если длина или CRC32 не совпадают
+     */
+    @Nullable
+    private static byte[] readPacked(ByteBuffer data, int offset) {
+        int length = data.getShort(offset + RECORD_LENGTH);
+        if (length <= 0 || IsDayOffYear.packedSize(length) > RECORD_SIZE - RECORD_DATA) {
+            return null;
+        }
+        byte[] packed = new byte[IsDayOffYear.packedSize(length)];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = data.get(offset + RECORD_DATA + i);
+        }
+        return checksum(packed) == data.getInt(offset + RECORD_CHECKSUM) ? packed : null;
+    }
+
+    /**
+     * Записать год
+     * Новая версия пишется в запасную запись ключа, а если ее еще нет - в конец файла.
+     * Каталог заменяется целиком после записи: читатели, получившие прежний каталог, дочитывают
+     * неизменную прежнюю запись. При открытии файла для ключа выбирается целая запись с большим поколением
+     * @param properties Параметры
+     * @param year Данные года
+     * @throws UncheckedIOException если файл не удалось записать или он поврежден
+     */
+    @Override
+    public void storeYear(IsDayOffProps properties, IsDayOffYear year) {
+        store(properties, year, false);
+    }
+
+    /**
+     * Записать год, только если для этих параметров и года в хранилище еще нет записи
+     * @param properties Параметры
+     * @param year Данные года
+     * @return true - год записан
+     */
+    boolean storeYearIfAbsent(IsDayOffProps properties, IsDayOffYear year) {
+        return store(properties, year, true);
+    }
+
+    private synchronized boolean store(IsDayOffProps properties, IsDayOffYear year, boolean ifAbsent) {
+        if (channel == null) {
+            return false;
+        }
+        try {
+            FileLock lock = channel.lock(LOCK_POSITION, 1, false);
+            try {
+                Mapping current = reload();
+                ByteBuffer data = current.buffer;
+                int key = key(properties, year.getYear());
+                int index = current.directory.indexOf(key);
+                if (index >= 0 && ifAbsent) {
+                    mapping = current;
+                    return false;
+                }
+                int previous = index >= 0 ? current.directory.offsets[index] : -1;
+                int offset = index >= 0 ? current.directory.spares[index] : -1;
+                if (offset < 0) {
+                    int count = data.getInt(COUNT_OFFSET);
+                    offset = HEADER_SIZE + count * RECORD_SIZE;
+                    if (offset + RECORD_SIZE > data.capacity()) {
+                        data = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) Math.max(count, INITIAL_CAPACITY) * 2 * RECORD_SIZE);
+                    }
+                    data.putInt(COUNT_OFFSET, count + 1);
+                }
+                int generation = previous >= 0 ? data.getInt(previous + RECORD_GENERATION) + 1 : 0;
+                writeRecord(data, offset, properties, year, generation);
+                mapping = new Mapping(data, current.directory.with(key, offset, previous));
+                return true;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Отображение и каталог с учетом записей, добавленных другими процессами
+     * Вызывается под блокировкой файла
+     */
+    private Mapping reload() throws IOException {
+        ByteBuffer data = mapping.buffer;
+        long size = channel.size();
+        if (size > data.capacity()) {
+            data = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        return new Mapping(data, Directory.read(data));
+    }
+
+    private static void writeRecord(ByteBuffer data, int offset, IsDayOffProps properties, IsDayOffYear year, int generation) {
+        String locale = properties.getLocale().getId();
+        byte[] packed = year.getPacked();
+        data.put(offset + RECORD_LOCALE, (byte) locale.charAt(0));
+        data.put(offset + RECORD_LOCALE + 1, (byte) locale.charAt(1));
+        data.put(offset + RECORD_FLAGS, (byte) flags(properties));
+        data.putShort(offset + RECORD_YEAR, (short) year.getYear());
+        data.putShort(offset + RECORD_LENGTH, (short) year.length());
+        for (int i = 0; i < packed.length; i++) {
+            data.put(offset + RECORD_DATA + i, packed[i]);
+        }
+        data.putLong(offset + RECORD_FETCHED_AT, year.getFetchedAt());
+        data.putInt(offset + RECORD_CHECKSUM, checksum(packed));
+        data.putInt(offset + RECORD_GENERATION, generation);
+    }
+
+    private static int checksum(byte[] packed) {
+        CRC32 crc = new CRC32();
+        crc.update(packed);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Годы, записанные для набора параметров
+     * @param properties Параметры
+     * @return Годы по возрастанию
+     */
+    @Override
+    public int[] listYears(IsDayOffProps properties) {
+        int prefix = key(properties, 0) >>> 12;
+        int[] keys = mapping.directory.keys;
+        int[] years = new int[keys.length];
+        int count = 0;
+        for (int key : keys) {
+            if (key >>> 12 == prefix) {
+                years[count++] = key & 0xFFF;
+            }
+        }
+        return Arrays.copyOf(years, count);
+    }
+
+    /**
+     * Обойти все записи хранилища
+     * Записи с неизвестной страной или поврежденными данными пропускаются
+     * @param action Получает параметры и данные года
+     */
+    public void forEachYear(BiConsumer<IsDayOffProps, IsDayOffYear> action) {
+        Mapping current = mapping;
+        ByteBuffer data = current.buffer;
+        for (int offset : current.directory.offsets) {
+            String localeId = new String(new char[]{(char) data.get(offset + RECORD_LOCALE), (char) data.get(offset + RECORD_LOCALE + 1)});
+            LocalesType locale = LocalesType.fromId(localeId);
+            if (locale == null) {
+                continue;
+            }
+            int flags = data.get(offset + RECORD_FLAGS);
+            IsDayOffBuilder builder = new IsDayOffBuilder().setLocale(locale);
+            if ((flags & 1) != 0) {
+                builder.addPreHolidaysDay();
+            }
+            if ((flags & 2) != 0) {
+                builder.addCovidWorkingDays();
+            }
+            if ((flags & 4) != 0) {
+                builder.setSixDaysWorkWeek();
+            }
+            IsDayOffProps properties = new IsDayOffProps(builder);
+            IsDayOffYear year = loadYear(properties, data.getShort(offset + RECORD_YEAR));
+            if (year != null) {
+                action.accept(properties, year);
+            }
+        }
+    }
+
+    /**
+     * Сохранить используемую часть хранилища в файл, без свободного места под новые записи
+     * @param file Файл
+     */
+    public void writeTo(File file) throws IOException {
+        ByteBuffer data = mapping.buffer.duplicate();
+        data.position(0);
+        data.limit(HEADER_SIZE + data.getInt(COUNT_OFFSET) * RECORD_SIZE);
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                out.write(data);
+            }
+        }
+    }
+
+    /**
+     * Файл был создан при открытии, а не прочитан с диска
+     */
+    public boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * Закрыть файл. Следующий вызов {@link #open(File)} для того же пути прочитает файл заново
+     */
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            OPENED.values().remove(this);
+            channel.close();
+        }
+    }
+
+    /**
+     * Отображение файла и каталог, который ссылается только на уже записанные в это отображение записи
+     */
+    private static final class Mapping {
+        private final ByteBuffer buffer;
+        private final Directory directory;
+
+        Mapping(ByteBuffer buffer, Directory directory) {
+            this.buffer = buffer;
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * Упорядоченный по ключу каталог записей. Неизменяемый, заменяется целиком при записи года
+     */
+    private static final class Directory {
+        private final int[] keys;
+        /**
+         * Текущая запись ключа
+         */
+        private final int[] offsets;
+        /**
+         * Запасная запись ключа для следующей версии или -1
+         */
+        private final int[] spares;
+
+        private Directory(int[] keys, int[] offsets, int[] spares) {
+            this.keys = keys;
+            this.offsets = offsets;
+            this.spares = spares;
+        }
+
+        /**
+         * Прочитать каталог за один проход по записям и одну сортировку
+         * Для каждого ключа текущей становится целая запись с большим поколением, при равных - последняя в файле,
+         * а запасной - предыдущая. Остальные записи ключа, оставшиеся от прежних версий формата, не используются
+         * @throws IOException если кол-во записей в заголовке не соответствует размеру файла
+         */
+        static Directory read(ByteBuffer data) throws IOException {
+            int count = data.getInt(COUNT_OFFSET);
+            if (count < 0 || count > (data.limit() - HEADER_SIZE) / RECORD_SIZE) {
+                throw new IOException("Invalid IsDayOff binary cache record count: " + count);
+            }
+            long[] entries = new long[count];
+            for (int i = 0; i < count; i++) {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                int key = key(data.get(offset + RECORD_LOCALE),
+                        data.get(offset + RECORD_LOCALE + 1),
+                        data.get(offset + RECORD_FLAGS),
+                        data.getShort(offset + RECORD_YEAR));
+                entries[i] = (long) key << 32 | i;
+            }
+            Arrays.sort(entries);
+            int[] keys = new int[count];
+            int[] offsets = new int[count];
+            int[] spares = new int[count];
+            int size = 0;
+            for (int start = 0; start < count; ) {
+                int key = (int) (entries[start] >>> 32);
+                int end = start;
+                int best = -1;
+                int second = -1;
+                while (end < count && (int) (entries[end] >>> 32) == key) {
+                    int offset = HEADER_SIZE + (int) entries[end] * RECORD_SIZE;
+                    if (best < 0 || isNewer(data, offset, best)) {
+                        second = best;
+                        best = offset;
+                    } else if (second < 0 || isNewer(data, offset, second)) {
+                        second = offset;
+                    }
+                    end++;
+                }
+                keys[size] = key;
+                offsets[size] = best;
+                spares[size] = second;
+                size++;
+                start = end;
+            }
+            return new Directory(Arrays.copyOf(keys, size), Arrays.copyOf(offsets, size), Arrays.copyOf(spares, size));
+        }
+
+        /**
+         * Запись offset новее записи other: целая запись новее поврежденной, затем больше поколение, затем дальше в файле
+         */
+        private static boolean isNewer(ByteBuffer data, int offset, int other) {
+            boolean valid = readPacked(data, offset) != null;
+            if (valid != (readPacked(data, other) != null)) {
+                return valid;
+            }
+            int generation = data.getInt(offset + RECORD_GENERATION);
+            int otherGeneration = data.getInt(other + RECORD_GENERATION);
+            return generation != otherGeneration ? generation > otherGeneration : offset > other;
+        }
+
+        int indexOf(int key) {
+            return Arrays.binarySearch(keys, key);
+        }
+
+        int find(int key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? offsets[index] : -1;
+        }
+
+        /**
+         * Каталог, где текущая запись ключа - offset, а запасная - spare
+         */
+        Directory with(int key, int offset, int spare) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                int[] newOffsets = offsets.clone();
+                int[] newSpares = spares.clone();
+                newOffsets[index] = offset;
+                newSpares[index] = spare;
+                return new Directory(keys, newOffsets, newSpares);
+            }
+            int insert = -index - 1;
+            return new Directory(insert(keys, insert, key), insert(offsets, insert, offset), insert(spares, insert, spare));
+        }
+
+        private static int[] insert(int[] array, int index, int value) {
+            int[] result = new int[array.length + 1];
+            System.arraycopy(array, 0, result, 0, index);
+            result[index] = value;
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            return result;
+        }
+    }
+}
@@ -1,6 +1,16 @@
 package com.groupstp.isdayoff;
 
+import com.groupstp.isdayoff.enums.CacheFormatType;
+import com.groupstp.isdayoff.enums.DayType;
 import com.groupstp.isdayoff.enums.LocalesType;
+import com.groupstp.isdayoff.enums.RefreshType;
+
+import java.net.http.HttpClient;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.concurrent.Executor;
 
 /**
  * Builder для установки параметров
@@ -42,6 +52,129 @@ public class IsDayOffBuilder {
      * По умолчанию отключено
      */
     private Integer covidWorkingDays;
+    /**
+     * Собственные правила поверх календаря сервиса
+     * По умолчанию без правил
+     */
+    private IsDayOffOverlay overlay;
+    /**
+     * Пул потоков для HTTP-клиента и асинхронных методов
+     * По умолчанию используется пул HttpClient и общий ForkJoinPool
+     */
+    private Executor executor;
+    /**
+     * Таймаут установки соединения
+     * По умолчанию 5 секунд
+     */
+    private Duration connectTimeout;
+    /**
+     * Таймаут запроса
+     * По умолчанию 10 секунд
+     */
+    private Duration requestTimeout;
+    /**
+     * Максимальное кол-во повторов неудачного запроса
+     * По умолчанию 2
+     */
+    private Integer maxRetries;
+    /**
+     * Начальная задержка перед повтором, удваивается с каждым повтором
+     * По умолчанию 200 мс
+     */
+    private Duration retryBackoff;
+    /**
+     * Доля повторов от общего числа запросов
+     * По умолчанию 0.1
+     */
+    private Double retryBudget;
+    /**
+     * Кол-во неудачных запросов подряд, после которого запросы временно не выполняются
+     * По умолчанию 5, 0 - не ограничивать
+     */
+    private Integer circuitBreakerThreshold;
+    /**
+     * Время, в течение которого запросы не выполняются после размыкания
+     * По умолчанию 30 секунд
+     */
+    private Duration circuitBreakerOpenTime;
+    /**
+     * Версия HTTP
+     * По умолчанию HTTP/2 с откатом на HTTP/1.1
+     */
+    private HttpClient.Version httpVersion;
+    /**
+     * Горизонт поиска в днях для getFirstDayByType и getCountDaysByType
+     * По умолчанию 366
+     */
+    private Integer searchHorizonDays;
+    /**
+     * Адрес API сервиса
+     * По умолчанию https://isdayoff.ru/api/
+     */
+    private String baseUrl;
+    /**
+     * Формат файлов кэша
+     * По умолчанию текстовый файл на каждый год
+     */
+    private CacheFormatType cacheFormat;
+    /**
+     * Хранилище кэша
+     * По умолчанию не указано - файлы в папке кэша в формате cacheFormat
+     */
+    private IsDayOffStorage storage;
+    /**
+     * Планировщик запросов годов к сервису
+     * По умолчанию не указан - каждый год запрашивается отдельным запросом сразу
+     */
+    private IsDayOffPlanner planner;
+    /**
+     * Максимальное кол-во одновременных запросов при получении отрезка из нескольких годов
+     * По умолчанию 4
+     */
+    private Integer maxParallelFetches;
+    /**
+     * Режим обновления устаревшего кэша
+     * По умолчанию BLOCKING
+     */
+    private RefreshType refreshType;
+    /**
+     * За сколько до истечения срока хранения обновлять год в режиме BACKGROUND
+     * По умолчанию 1 день
+     */
+    private Duration refreshAhead;
+    /**
+     * Максимальный случайный сдвиг фонового обновления
+     * По умолчанию 6 часов
+     */
+    private Duration refreshJitter;
+    /**
+     * Получатель событий для метрик и трассировки
+     * По умолчанию не указан, события не создаются
+     */
+    private IsDayOffListener listener;
+    /**
+     * Снимок календаря в classpath
+     */
+    private String snapshotResource;
+    /**
+     * Файл снимка календаря
+     */
+    private String snapshotFile;
+    /**
+     * Обновлять ли данные снимка у сервиса
+     * По умолчанию false - данные снимка используются без обращения к сервису
+     */
+    private Boolean snapshotRefresh;
+    /**
+     * Сколько лет до текущего загружать при создании экземпляра
+     * По умолчанию 0
+     */
+    private Integer warmupYearsBefore;
+    /**
+     * Сколько лет после текущего загружать при создании экземпляра
+     * По умолчанию 0
+     */
+    private Integer warmupYearsAfter;
 
     public IsDayOffBuilder() {
         cache = true;
@@ -51,6 +184,24 @@ public class IsDayOffBuilder {
         preHolidaysDay = 0;
         sixDaysWorkWeek = 0;
         covidWorkingDays = 0;
+        overlay = IsDayOffOverlay.EMPTY;
+        searchHorizonDays = 366;
+        baseUrl = "https://isdayoff.ru/api/";
+        cacheFormat = CacheFormatType.TEXT;
+        maxParallelFetches = 4;
+        refreshType = RefreshType.BLOCKING;
+        refreshAhead = Duration.ofDays(1);
+        refreshJitter = Duration.ofHours(6);
+        snapshotRefresh = false;
+        connectTimeout = Duration.ofSeconds(5);
+        requestTimeout = Duration.ofSeconds(10);
+        maxRetries = 2;
+        retryBackoff = Duration.ofMillis(200);
+        retryBudget = 0.1;
+        circuitBreakerThreshold = 5;
+        circuitBreakerOpenTime = Duration.ofSeconds(30);
+        warmupYearsBefore = 0;
+        warmupYearsAfter = 0;
     }
 
     /**
@@ -115,11 +266,283 @@ public class IsDayOffBuilder {
         return this;
     }
 
+    /**
+     * Замена типа одного дня
+     * @param date День
+     * @param dayType Тип дня
+     * @see #addOverride(LocalDate, LocalDate, DayType)
+     */
+    public IsDayOffBuilder addOverride(LocalDate date, DayType dayType) {
+        return addOverride(date, date, dayType);
+    }
+
+    /**
+     * Замена типа дней отрезка, например для корпоративных выходных
+     * Правила применяются к данным года один раз при загрузке и обновлении.
+     * Более поздние правила имеют приоритет над более ранними
+     * @param from Первый день, включительно
+     * @param to Последний день, включительно
+     * @param dayType Тип дня: рабочий, нерабочий, сокращенный или рабочий в пандемию
+     */
+    public IsDayOffBuilder addOverride(LocalDate from, LocalDate to, DayType dayType) {
+        overlay = overlay.with(from, to, dayType);
+        return this;
+    }
+
+    /**
+     * Замена типа N-го дня недели каждого месяца, например последняя пятница месяца - сокращенный день
+     * @param ordinal Номер дня недели в месяце: от 1 до 5, или от -1 до -5 с конца месяца
+     * @param dayOfWeek День недели
+     * @param dayType Тип дня
+     * @see #addOverride(LocalDate, LocalDate, DayType)
+     */
+    public IsDayOffBuilder addOverride(int ordinal, DayOfWeek dayOfWeek, DayType dayType) {
+        overlay = overlay.with(null, ordinal, dayOfWeek, dayType);
+        return this;
+    }
+
+    /**
+     * Замена типа N-го дня недели месяца каждого года, например второй понедельник марта - выходной
+     * @param month Месяц
+     * @param ordinal Номер дня недели в месяце: от 1 до 5, или от -1 до -5 с конца месяца
+     * @param dayOfWeek День недели
+     * @param dayType Тип дня
+     * @see #addOverride(LocalDate, LocalDate, DayType)
+     */
+    public IsDayOffBuilder addOverride(Month month, int ordinal, DayOfWeek dayOfWeek, DayType dayType) {
+        overlay = overlay.with(month, ordinal, dayOfWeek, dayType);
+        return this;
+    }
+
+    /**
+     * Пул потоков для HTTP-клиента и асинхронных методов
+     * @param executor Пул потоков
+     */
+    public IsDayOffBuilder setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Таймаут установки соединения с сервисом
+     * @param connectTimeout Таймаут
+     */
+    public IsDayOffBuilder setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    /**
+     * Таймаут запроса к сервису
+     * @param requestTimeout Таймаут
+     */
+    public IsDayOffBuilder setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
+    /**
+     * Повторы неудачных запросов: ошибки соединения, таймауты, ответы 429 и 5xx
+     * Задержка перед повтором удваивается и выбирается случайно от половины до полного значения
+     * @param maxRetries Максимальное кол-во повторов одного запроса
+     * @param retryBackoff Начальная задержка перед повтором
+     */
+    public IsDayOffBuilder setRetries(Integer maxRetries, Duration retryBackoff) {
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        return this;
+    }
+
+    /**
+     * Общее ограничение повторов, чтобы при недоступном сервисе повторы не умножали нагрузку
+     * Ограничение одно на все экземпляры с тем же хостом сервиса и той же долей повторов
+     * @param retryBudget Доля повторов от общего числа запросов
+     */
+    public IsDayOffBuilder setRetryBudget(Double retryBudget) {
+        this.retryBudget = retryBudget;
+        return this;
+    }
+
+    /**
+     * Размыкатель цепи: после failureThreshold неудачных запросов подряд запросы к сервису
+     * не выполняются в течение openTime, вместо них используются данные кэша, даже устаревшие
+     * @param failureThreshold Кол-во неудач подряд, 0 - не размыкать
+     * @param openTime Время, в течение которого запросы не выполняются
+     */
+    public IsDayOffBuilder setCircuitBreaker(Integer failureThreshold, Duration openTime) {
+        this.circuitBreakerThreshold = failureThreshold;
+        this.circuitBreakerOpenTime = openTime;
+        return this;
+    }
+
+    /**
+     * Версия HTTP для запросов к сервису
+     * @param httpVersion Версия
+     */
+    public IsDayOffBuilder setHttpVersion(HttpClient.Version httpVersion) {
+        this.httpVersion = httpVersion;
+        return this;
+    }
+
+    /**
+     * Ограничение поиска дней по типу
+     * @param searchHorizonDays Максимальное кол-во дней, на которое можно уйти от дня отсчета
+     * @see IsDayOff#getFirstDayByType
+     * @see IsDayOff#getCountDaysByType
+     */
+    public IsDayOffBuilder setSearchHorizonDays(Integer searchHorizonDays) {
+        this.searchHorizonDays = searchHorizonDays;
+        return this;
+    }
+
+    /**
+     * Адрес API сервиса
+     * Позволяет использовать совместимый с isdayoff.ru сервер, например локальную заглушку
+     * @param baseUrl Адрес, к которому добавляются getdata и isleap
+     */
+    public IsDayOffBuilder setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+        return this;
+    }
+
+    /**
+     * Формат файлов кэша
+     * При переходе на BINARY существующие текстовые файлы кэша импортируются автоматически
+     * @param cacheFormat Формат
+     * @see com.groupstp.isdayoff.enums.CacheFormatType
+     */
+    public IsDayOffBuilder setCacheFormat(CacheFormatType cacheFormat) {
+        this.cacheFormat = cacheFormat;
+        return this;
+    }
+
+    /**
+     * Собственное хранилище кэша вместо файлов в папке кэша
+     * Если указано, cacheDir и cacheFormat не используются
+     * @param storage Хранилище, например {@link IsDayOffSharedDirectoryStorage}
+     */
+    public IsDayOffBuilder setStorage(IsDayOffStorage storage) {
+        this.storage = storage;
+        return this;
+    }
+
+    /**
+     * Планировщик запросов годов: сбор годов за короткое окно, объединение соседних годов в запросы date1/date2,
+     * ограничение одновременных запросов и частоты запросов к хосту
+     * @param planner Планировщик. Один планировщик для нескольких экземпляров дает общие ограничения для хоста
+     */
+    public IsDayOffBuilder setPlanner(IsDayOffPlanner planner) {
+        this.planner = planner;
+        return this;
+    }
+
+    /**
+     * Ограничение параллельных запросов при получении отрезка из нескольких годов
+     * @param maxParallelFetches Максимальное кол-во одновременных запросов, значения меньше 1 считаются 1
+     * @see IsDayOff#daysTypeByRange
+     */
+    public IsDayOffBuilder setMaxParallelFetches(Integer maxParallelFetches) {
+        this.maxParallelFetches = maxParallelFetches;
+        return this;
+    }
+
+    /**
+     * Режим обновления устаревшего кэша
+     * В режиме BACKGROUND устаревшие данные продолжают использоваться, а обновляются в фоне
+     * @param refreshType Режим
+     * @see com.groupstp.isdayoff.enums.RefreshType
+     */
+    public IsDayOffBuilder setRefreshType(RefreshType refreshType) {
+        this.refreshType = refreshType;
+        return this;
+    }
+
+    /**
+     * За сколько до истечения срока хранения обновлять год в режиме BACKGROUND
+     * @param refreshAhead Время до истечения срока хранения
+     */
+    public IsDayOffBuilder setRefreshAhead(Duration refreshAhead) {
+        this.refreshAhead = refreshAhead;
+        return this;
+    }
+
+    /**
+     * Максимальный случайный сдвиг фонового обновления, чтобы разные узлы не обновлялись одновременно
+     * @param refreshJitter Сдвиг
+     */
+    public IsDayOffBuilder setRefreshJitter(Duration refreshJitter) {
+        this.refreshJitter = refreshJitter;
+        return this;
+    }
+
+    /**
+     * Получатель событий для метрик и трассировки
+     * @param listener Получатель, например IsDayOffMetrics
+     * @see com.groupstp.isdayoff.IsDayOffMetrics
+     */
+    public IsDayOffBuilder setListener(IsDayOffListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Снимок календаря из classpath, используется как начальные данные без обращения к сервису
+     * @param snapshotResource Имя ресурса, например isdayoff-snapshot.bin
+     * @see com.groupstp.isdayoff.IsDayOffSnapshot
+     */
+    public IsDayOffBuilder setSnapshotResource(String snapshotResource) {
+        this.snapshotResource = snapshotResource;
+        return this;
+    }
+
+    /**
+     * Снимок календаря из файла, используется как начальные данные без обращения к сервису
+     * Если указан, ресурс из classpath не используется
+     * @param snapshotFile Путь к файлу
+     * @see com.groupstp.isdayoff.IsDayOffSnapshot
+     */
+    public IsDayOffBuilder setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        return this;
+    }
+
+    /**
+     * Обновлять ли данные снимка у сервиса
+     * true - данные снимка устаревают через cacheStorageDays после создания снимка и обновляются
+     * так же, как кэш, в том числе в фоне при RefreshType.BACKGROUND
+     * @param snapshotRefresh true - обновлять, false - использовать снимок без обращения к сервису
+     */
+    public IsDayOffBuilder setSnapshotRefresh(Boolean snapshotRefresh) {
+        this.snapshotRefresh = snapshotRefresh;
+        return this;
+    }
+
+    /**
+     * Годы, которые загружаются при создании экземпляра, кроме текущего
+     * @param warmupYearsBefore Кол-во лет до текущего
+     * @param warmupYearsAfter Кол-во лет после текущего
+     */
+    public IsDayOffBuilder setWarmupYears(Integer warmupYearsBefore, Integer warmupYearsAfter) {
+        this.warmupYearsBefore = warmupYearsBefore;
+        this.warmupYearsAfter = warmupYearsAfter;
+        return this;
+    }
 
     public IsDayOff build() {
         return new IsDayOff(this);
     }
 
+    /**
+     * Создание экземпляра без ожидания сети и диска
+     * Текущий год и годы из setWarmupYears загружаются в фоне. Запрос дня до окончания загрузки
+     * ждет только нужный ему год
+     * @return Экземпляр, готовность которого можно проверить через IsDayOff.ready()
+     * @see IsDayOff#ready()
+     */
+    public IsDayOff buildAsync() {
+        return new IsDayOff(this, true);
+    }
+
     public Boolean getCache() {
         return cache;
     }
@@ -147,4 +570,104 @@ public class IsDayOffBuilder {
     public Integer getCovidWorkingDays() {
         return covidWorkingDays;
     }
+
+    public IsDayOffOverlay getOverlay() {
+        return overlay;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public Integer getMaxRetries() {
+        return maxRetries;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public Double getRetryBudget() {
+        return retryBudget;
+    }
+
+    public Integer getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    public Duration getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    public HttpClient.Version getHttpVersion() {
+        return httpVersion;
+    }
+
+    public Integer getSearchHorizonDays() {
+        return searchHorizonDays;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public CacheFormatType getCacheFormat() {
+        return cacheFormat;
+    }
+
+    public IsDayOffStorage getStorage() {
+        return storage;
+    }
+
+    public IsDayOffPlanner getPlanner() {
+        return planner;
+    }
+
+    public Integer getMaxParallelFetches() {
+        return maxParallelFetches;
+    }
+
+    public RefreshType getRefreshType() {
+        return refreshType;
+    }
+
+    public Duration getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public Duration getRefreshJitter() {
+        return refreshJitter;
+    }
+
+    public IsDayOffListener getListener() {
+        return listener;
+    }
+
+    public String getSnapshotResource() {
+        return snapshotResource;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public Boolean getSnapshotRefresh() {
+        return snapshotRefresh;
+    }
+
+    public Integer getWarmupYearsBefore() {
+        return warmupYearsBefore;
+    }
+
+    public Integer getWarmupYearsAfter() {
+        return warmupYearsAfter;
+    }
 }
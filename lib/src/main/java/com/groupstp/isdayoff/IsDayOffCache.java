@@ -1,26 +1,76 @@
 package com.groupstp.isdayoff;
 
-import java.io.*;
-import java.text.SimpleDateFormat;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
-import com.groupstp.isdayoff.enums.LocalesType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.groupstp.isdayoff.enums.CacheFormatType;
 
 /**
  * Класс для работы с кэшем
+ * Данные хранятся в {@link IsDayOffStorage}: указанном в параметрах или в файлах папки кэша
  */
 public class IsDayOffCache {
     private final Boolean cache;
-    private final LocalesType locale;
-    private String cacheDir;
+    private final String cacheDir;
     private final Integer cacheStorageDays;
-    private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyyMMdd");
+    private final IsDayOffProps properties;
+    private final IsDayOffStorage storage;
+    @Nullable
+    private final IsDayOffListener listener;
 
     public IsDayOffCache(IsDayOffBuilder builder) {
         cache = builder.getCache();
         cacheStorageDays = builder.getCacheStorageDays();
         cacheDir = builder.getCacheDir();
-        locale = builder.getLocale();
+        properties = new IsDayOffProps(builder);
+        listener = builder.getListener();
+        storage = createStorage(builder);
+    }
+
+    private IsDayOffStorage createStorage(IsDayOffBuilder builder) {
+        if (builder.getStorage() != null) {
+            return builder.getStorage();
+        }
+        if (builder.getCacheFormat() == CacheFormatType.MEMORY) {
+            return new MemoryOnlyStorage();
+        }
+        IsDayOffTextStorage textStorage = new IsDayOffTextStorage(cacheDir);
+        if (cache && builder.getCacheFormat() == CacheFormatType.BINARY) {
+            try {
+                IsDayOffBinaryStore binaryStore = IsDayOffBinaryStore.open(new File(cacheDir.isEmpty() ? "." : cacheDir, "IsDayOffCache.bin"));
+                importTextCache(textStorage, binaryStore);
+                return binaryStore;
+            } catch (IOException | UncheckedIOException e) {
+                onError("binary cache open", e);
+            }
+        }
+        return textStorage;
+    }
+
+    /**
+     * Перенос текстовых файлов кэша текущих параметров в бинарный файл
+     * Переносятся только годы, которых для этих параметров в бинарном файле еще нет,
+     * поэтому повторное открытие и открытие с другой страной не создают дублей
+     */
+    private void importTextCache(IsDayOffTextStorage textStorage, IsDayOffBinaryStore binaryStore) {
+        int[] stored = binaryStore.listYears(properties);
+        for (int year : textStorage.listYears(properties)) {
+            if (Arrays.binarySearch(stored, year) >= 0) {
+                continue;
+            }
+            IsDayOffYear loaded = textStorage.loadYear(properties, year);
+            if (loaded != null) {
+                binaryStore.storeYearIfAbsent(properties, loaded);
+            }
+        }
     }
 
     /**
@@ -28,29 +78,34 @@ public class IsDayOffCache {
      * @param data Строка рабочих/нерабочих дней
      * @param year Год, для которого создается кэш
      */
-    public void createCacheFile(String data, int year) {
-        File cacheFile = getCacheFile(year);
-        if (!cacheFile.exists()) {
-            try {
-                cacheFile.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
+    public void createCacheFile(@Nullable String data, int year) {
+        IsDayOffYear parsed = IsDayOffYear.parse(year, data, System.currentTimeMillis());
+        if (parsed != null) {
+            writeYear(parsed);
         }
-        try (FileOutputStream fileOutputStream = new FileOutputStream(cacheFile)){
-            fileOutputStream.write((simpleDateFormat.format(new Date()) + "\r\n" + data).getBytes());
-        } catch (IOException e) {
-            e.printStackTrace();
+    }
+
+    /**
+     * Сохранить год в кэш
+     * @param year Данные года
+     */
+    public void writeYear(IsDayOffYear year) {
+        long start = listener != null ? System.nanoTime() : 0;
+        try {
+            storage.storeYear(properties, year);
+        } catch (RuntimeException e) {
+            onError("cache write", e);
+            return;
+        }
+        if (listener != null) {
+            listener.onCacheWrite(properties, year.getYear(), System.nanoTime() - start);
         }
     }
 
-    private File getCacheFile(int year) {
-        String fileName = "IsDayOffCache " + year+"-"+locale.name();
-        if (!cacheDir.endsWith("/") && !cacheDir.isEmpty()) {
-            cacheDir += "/";
+    private void onError(String operation, Exception error) {
+        if (listener != null) {
+            listener.onError(operation, error);
         }
-        return new File(cacheDir + fileName + ".txt");
     }
 
     /**
@@ -59,22 +114,41 @@ public class IsDayOffCache {
      * @return true - кэш актуален, false - кэш не создан или требуется его обновить
      */
     public boolean checkCacheFile(int year) {
-        File cacheFile = getCacheFile(year);
-        if (cacheFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(cacheFile))) {
-                String fileDateLine = reader.readLine();
-                Date fileCreateDate = simpleDateFormat.parse(fileDateLine);
-                Calendar calendar = Calendar.getInstance();
-                calendar.setTime(fileCreateDate);
-                calendar.add(Calendar.DAY_OF_YEAR, cacheStorageDays);
-                fileCreateDate = calendar.getTime();
-                return fileCreateDate.after(new Date());
-            } catch (Exception e) {
-                return false;
-            }
-        } else {
-            return false;
+        long fetchedAt = storage.getFetchedAt(properties, year);
+        return fetchedAt >= 0 && fetchedAt + TimeUnit.DAYS.toMillis(cacheStorageDays) > System.currentTimeMillis();
+    }
+
+    /**
+     * Прочитать файл кэша за год целиком
+     * @param year год
+     * @return данные года или null, если файла нет или он поврежден
+     */
+    @Nullable
+    public IsDayOffYear readYear(int year) {
+        if (listener == null) {
+            return storage.loadYear(properties, year);
         }
+        long start = System.nanoTime();
+        IsDayOffYear result = storage.loadYear(properties, year);
+        listener.onCacheRead(properties, year, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Выполнить загрузку года под блокировкой хранилища
+     * @see IsDayOffStorage#exclusive(IsDayOffProps, int, Executor, Supplier)
+     */
+    public <T> CompletableFuture<T> exclusive(int year, Executor executor, Supplier<CompletableFuture<T>> action) {
+        return storage.exclusive(properties, year, executor, action);
+    }
+
+    /**
+     * Проверить данные года на актуальность
+     * @param year данные года
+     * @return true - данные получены не раньше, чем cacheStorageDays дней назад
+     */
+    public boolean isActual(IsDayOffYear year) {
+        return year.getFetchedAt() + TimeUnit.DAYS.toMillis(cacheStorageDays) > System.currentTimeMillis();
     }
 
     /**
@@ -86,61 +160,34 @@ public class IsDayOffCache {
      */
     public String getCachedDay(Integer year, Integer month, Integer day) {
         Calendar calendar = Calendar.getInstance();
-        Integer tempMonth = month;
-        Integer tempDay = day;
-        if (tempMonth == null) {
-            tempMonth = 0;
-        }
-        if (tempDay == null) {
-            tempDay = 1;
-        }
-        calendar.set(year, tempMonth, tempDay);
-        File cacheFile = getCacheFile(calendar.get(Calendar.YEAR));
-        if (cacheFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(cacheFile))) {
-                reader.readLine();
-                if (day != null && month != null) {
-                    char[] data = reader.readLine().toCharArray();
-                    return String.valueOf(data[calendar.get(Calendar.DAY_OF_YEAR) - 1]);
-                } else {
-                    if (month != null) {
-                        int firstDay = calendar.get(Calendar.DAY_OF_YEAR) - 1;
-                        int lastDay = firstDay + calendar.getMaximum(Calendar.DAY_OF_MONTH);
-                        return reader.readLine().substring(firstDay, lastDay);
-                    } else {
-                        int firstDay = calendar.get(Calendar.DAY_OF_YEAR) - 1;
-                        int lastDay = firstDay + calendar.getMaximum(Calendar.DAY_OF_YEAR) - 1;
-                        return reader.readLine().substring(firstDay, lastDay);
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        calendar.set(year, month != null ? month : 0, day != null ? day : 1);
+        IsDayOffYear loaded = storage.loadYear(properties, calendar.get(Calendar.YEAR));
+        if (loaded == null) {
+            return "";
+        }
+        int firstDay = calendar.get(Calendar.DAY_OF_YEAR) - 1;
+        if (day != null && month != null) {
+            return loaded.getDayType(firstDay).getId();
+        }
+        if (month != null) {
+            return loaded.getDays(firstDay, firstDay + calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
         }
-        return "";
+        return loaded.getDays(0, loaded.length());
     }
 
     /**
      * Получение отрезка дней из кэша
-     * @param startDate Начало отрезка
-     * @param endDate Конец
-     * @return строку с id типа отрезка дней
+     * Отрезок должен лежать внутри одного года
+     * @param startDate Начало отрезка, включительно
+     * @param endDate Конец отрезка, включительно
+     * @return строку с id типа каждого дня отрезка, как в ответе сервиса
      */
     public String getCachedDays(Calendar startDate, Calendar endDate) {
-        File cacheFile = getCacheFile(startDate.get(Calendar.YEAR));
-        if (cacheFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(cacheFile))) {
-                reader.readLine();
-                String data = reader.readLine();
-                int days = endDate.get(Calendar.DAY_OF_YEAR) - startDate.get(Calendar.DAY_OF_YEAR);
-                int day = startDate.get(Calendar.DAY_OF_YEAR);
-                days += day;
-                return data.substring(--day, --days);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        IsDayOffYear year = storage.loadYear(properties, startDate.get(Calendar.YEAR));
+        if (year == null) {
+            return "";
         }
-        return "";
+        return year.getDays(startDate.get(Calendar.DAY_OF_YEAR) - 1, endDate.get(Calendar.DAY_OF_YEAR));
     }
 
     public Boolean isCached() {
@@ -154,4 +201,28 @@ public class IsDayOffCache {
     public Integer getCacheStorageDays() {
         return cacheStorageDays;
     }
+
+    public IsDayOffStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Хранилище режима MEMORY: ничего не сохраняет, годы остаются только в памяти
+     */
+    private static final class MemoryOnlyStorage implements IsDayOffStorage {
+        @Nullable
+        @Override
+        public IsDayOffYear loadYear(IsDayOffProps properties, int year) {
+            return null;
+        }
+
+        @Override
+        public void storeYear(IsDayOffProps properties, IsDayOffYear year) {
+        }
+
+        @Override
+        public int[] listYears(IsDayOffProps properties) {
+            return new int[0];
+        }
+    }
 }
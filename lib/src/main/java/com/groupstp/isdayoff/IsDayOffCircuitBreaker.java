@@ -0,0 +1,75 @@
+package com.groupstp.isdayoff;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Размыкатель цепи для запросов к сервису
+ * После failureThreshold неудачных запросов подряд запросы не выполняются в течение openTime,
+ * затем пропускается один пробный запрос. Успешный пробный запрос замыкает цепь
+ */
+final class IsDayOffCircuitBreaker {
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicBoolean trial = new AtomicBoolean();
+    private volatile boolean open;
+    private volatile long openedAt;
+
+    /**
+     * @param failureThreshold Кол-во неудач подряд для размыкания, 0 - не размыкать
+     * @param openNanos Время, в течение которого запросы не выполняются
+     */
+    IsDayOffCircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Можно ли выполнить запрос
+     */
+    boolean allowRequest() {
+        if (!open) {
+            return true;
+        }
+        if (System.nanoTime() - openedAt < openNanos) {
+            return false;
+        }
+        return trial.compareAndSet(false, true);
+    }
+
+    void onSuccess() {
+        failures.set(0);
+        open = false;
+        trial.set(false);
+    }
+
+    void onFailure() {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        if (failures.incrementAndGet() >= failureThreshold || open) {
+            openedAt = System.nanoTime();
+            open = true;
+            trial.set(false);
+        }
+    }
+
+    /**
+     * Запрос завершился без ответа сервиса не по его вине, например поток был прерван
+     * Состояние цепи не меняется, но пробный запрос освобождается, иначе следующий пробный запрос
+     * никогда не будет разрешен
+     */
+    void onCancel() {
+        if (open) {
+            trial.set(false);
+        }
+    }
+
+    /**
+     * Цепь разомкнута и время до пробного запроса еще не прошло
+     */
+    boolean isOpen() {
+        return open && System.nanoTime() - openedAt < openNanos;
+    }
+}
@@ -0,0 +1,199 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+
+import javax.annotation.Nullable;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Определение типов дней для больших массивов дат
+ * Каждый год загружается один раз на весь вызов, массив делится между потоками ForkJoinPool,
+ * если в нем больше PARALLEL_THRESHOLD дат
+ */
+final class IsDayOffClassifier {
+    static final int PARALLEL_THRESHOLD = 1 << 15;
+    private static final int SPLIT_SIZE = 1 << 13;
+
+    private final IntFunction<IsDayOffYear> loader;
+    private final ForkJoinPool pool;
+    /**
+     * Загруженные за время вызова годы, общие для потоков ForkJoinPool.
+     * Два потока могут загрузить один год одновременно: повторная загрузка объединяется индексом
+     */
+    private final AtomicReferenceArray<IsDayOffYear> years = new AtomicReferenceArray<>(IsDayOffIndex.MAX_YEAR - IsDayOffIndex.MIN_YEAR + 1);
+    /**
+     * 1 для годов, которые не удалось получить
+     */
+    private final AtomicIntegerArray unavailable = new AtomicIntegerArray(years.length());
+
+    /**
+     * @param loader Загрузка года, возвращает null, если данные получить не удалось
+     * @param pool Пул для параллельной обработки
+     */
+    IsDayOffClassifier(IntFunction<IsDayOffYear> loader, ForkJoinPool pool) {
+        this.loader = loader;
+        this.pool = pool;
+    }
+
+    int classify(int[] epochDays, byte[] out) {
+        return run(new EpochDayTask(this, epochDays, out, 0, epochDays.length));
+    }
+
+    int classify(LocalDate[] dates, DayType[] out) {
+        return run(new LocalDateTask(this, dates, out, 0, dates.length));
+    }
+
+    private int run(Task task) {
+        if (task.to - task.from < PARALLEL_THRESHOLD) {
+            return task.classify();
+        }
+        return pool.invoke(task);
+    }
+
+    @Nullable
+    private IsDayOffYear year(int year) {
+        if (!IsDayOffIndex.isSupported(year)) {
+            return null;
+        }
+        int i = year - IsDayOffIndex.MIN_YEAR;
+        IsDayOffYear data = years.get(i);
+        if (data != null || unavailable.get(i) != 0) {
+            return data;
+        }
+        data = loader.apply(year);
+        if (data == null) {
+            unavailable.set(i, 1);
+        } else {
+            years.set(i, data);
+        }
+        return data;
+    }
+
+    /**
+     * Код ошибки для дня, год которого не удалось получить
+     */
+    private static DayType error(int year) {
+        return IsDayOffIndex.isSupported(year) ? DayType.SERVER_ERROR : DayType.ERROR_DATE;
+    }
+
+    /**
+     * Часть массива. Возвращает кол-во дней, тип которых определить не удалось
+     */
+    private abstract static class Task extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        final IsDayOffClassifier classifier;
+        final int from;
+        final int to;
+        /**
+         * Последний использованный год. Даты во входных данных обычно идут подряд,
+         * поэтому год чаще всего не нужно вычислять заново
+         */
+        private IsDayOffYear current;
+        private long currentFirst;
+        private long currentEnd;
+
+        Task(IsDayOffClassifier classifier, int from, int to) {
+            this.classifier = classifier;
+            this.from = from;
+            this.to = to;
+        }
+
+        abstract Task create(int from, int to);
+
+        abstract int classify();
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= SPLIT_SIZE) {
+                return classify();
+            }
+            int mid = (from + to) >>> 1;
+            Task left = create(from, mid);
+            left.fork();
+            int errors = create(mid, to).compute();
+            return errors + left.join();
+        }
+
+        DayType dayType(long epochDay) {
+            if (current == null || epochDay < currentFirst || epochDay >= currentEnd) {
+                int year = IsDayOffYear.yearOfEpochDay(epochDay);
+                IsDayOffYear data = classifier.year(year);
+                if (data == null) {
+                    return error(year);
+                }
+                current = data;
+                currentFirst = IsDayOffYear.firstEpochDay(year);
+                currentEnd = currentFirst + data.length();
+            }
+            return current.getDayType((int) (epochDay - currentFirst));
+        }
+    }
+
+    private static final class EpochDayTask extends Task {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] epochDays;
+        private final byte[] out;
+
+        EpochDayTask(IsDayOffClassifier classifier, int[] epochDays, byte[] out, int from, int to) {
+            super(classifier, from, to);
+            this.epochDays = epochDays;
+            this.out = out;
+        }
+
+        @Override
+        Task create(int from, int to) {
+            return new EpochDayTask(classifier, epochDays, out, from, to);
+        }
+
+        @Override
+        int classify() {
+            int errors = 0;
+            for (int i = from; i < to; i++) {
+                DayType type = dayType(epochDays[i]);
+                if (type.isWorkingDay() == null) {
+                    errors++;
+                }
+                out[i] = type.getCode();
+            }
+            return errors;
+        }
+    }
+
+    private static final class LocalDateTask extends Task {
+        private static final long serialVersionUID = 1L;
+
+        private final LocalDate[] dates;
+        private final DayType[] out;
+
+        LocalDateTask(IsDayOffClassifier classifier, LocalDate[] dates, DayType[] out, int from, int to) {
+            super(classifier, from, to);
+            this.dates = dates;
+            this.out = out;
+        }
+
+        @Override
+        Task create(int from, int to) {
+            return new LocalDateTask(classifier, dates, out, from, to);
+        }
+
+        @Override
+        int classify() {
+            int errors = 0;
+            for (int i = from; i < to; i++) {
+                DayType type = dates[i] != null ? dayType(dates[i].toEpochDay()) : DayType.ERROR_DATE;
+                if (type.isWorkingDay() == null) {
+                    errors++;
+                }
+                out[i] = type;
+            }
+            return errors;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.groupstp.isdayoff;
 import com.groupstp.isdayoff.enums.DayType;
 
 import java.util.Date;
+import java.util.Objects;
 
 public class IsDayOffDateType {
     /**
@@ -35,4 +36,24 @@ public class IsDayOffDateType {
     public DayType getDayType() {
         return dayType;
     }
+
+    /**
+     * Равны, если совпадают дата и тип дня
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IsDayOffDateType that = (IsDayOffDateType) o;
+        return Objects.equals(date, that.date) && dayType == that.dayType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(date, dayType);
+    }
 }
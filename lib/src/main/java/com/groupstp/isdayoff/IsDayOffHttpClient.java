@@ -0,0 +1,185 @@
+package com.groupstp.isdayoff;
+
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс для запросов к сервису
+ * Один HttpClient создается на экземпляр IsDayOff и переиспользуется всеми запросами,
+ * поэтому соединения, HTTP/2 и TLS-сессии не создаются заново на каждый запрос.
+ * Неудачные запросы повторяются в пределах общего ограничения повторов,
+ * а при недоступном сервисе запросы временно не выполняются
+ */
+public class IsDayOffHttpClient {
+    private final HttpClient client;
+    private final String userAgent;
+    private final Duration requestTimeout;
+    @Nullable
+    private final IsDayOffListener listener;
+    private final Executor executor;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final IsDayOffRetryBudget retryBudget;
+    private final IsDayOffCircuitBreaker circuitBreaker;
+
+    public IsDayOffHttpClient(IsDayOffBuilder builder, String userAgent) {
+        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (builder.getExecutor() != null) {
+            clientBuilder.executor(builder.getExecutor());
+        }
+        if (builder.getConnectTimeout() != null) {
+            clientBuilder.connectTimeout(builder.getConnectTimeout());
+        }
+        if (builder.getHttpVersion() != null) {
+            clientBuilder.version(builder.getHttpVersion());
+        }
+        this.client = clientBuilder.build();
+        this.userAgent = userAgent;
+        this.requestTimeout = builder.getRequestTimeout();
+        this.listener = builder.getListener();
+        this.executor = builder.getExecutor() != null ? builder.getExecutor() : ForkJoinPool.commonPool();
+        this.maxRetries = builder.getMaxRetries();
+        this.retryBackoffMillis = builder.getRetryBackoff().toMillis();
+        this.retryBudget = IsDayOffRetryBudget.shared(builder.getBaseUrl(), builder.getRetryBudget());
+        this.circuitBreaker = new IsDayOffCircuitBreaker(builder.getCircuitBreakerThreshold(),
+                builder.getCircuitBreakerOpenTime().toNanos());
+    }
+
+    /**
+     * Синхронный запрос
+     * @param url Адрес
+     * @return Тело ответа или null, если сервис ответил ошибкой или запрос не удался
+     */
+    @Nullable
+    public String request(String url) {
+        for (int attempt = 0; ; attempt++) {
+            if (!circuitBreaker.allowRequest()) {
+                return null;
+            }
+            if (attempt == 0) {
+                retryBudget.onRequest();
+            }
+            long start = listener != null ? started(url) : 0;
+            HttpResponse<String> response = null;
+            Exception error = null;
+            try {
+                response = client.send(buildRequest(url), HttpResponse.BodyHandlers.ofString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                circuitBreaker.onCancel();
+                if (listener != null) {
+                    listener.onRequestEnd(url, -1, System.nanoTime() - start, e);
+                }
+                return null;
+            } catch (Exception e) {
+                error = e;
+            }
+            if (listener != null) {
+                listener.onRequestEnd(url, response != null ? response.statusCode() : -1, System.nanoTime() - start, error);
+            }
+            if (response != null && !isRetriable(response.statusCode())) {
+                circuitBreaker.onSuccess();
+                return response.statusCode() == 200 ? response.body() : null;
+            }
+            circuitBreaker.onFailure();
+            if (attempt >= maxRetries || !retryBudget.tryRetry()) {
+                return null;
+            }
+            try {
+                Thread.sleep(backoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Асинхронный запрос, поток вызывающего не блокируется
+     * Задержки перед повторами тоже не блокируют потоки
+     * @param url Адрес
+     * @return Тело ответа или null, если сервис ответил ошибкой или запрос не удался
+     */
+    public CompletableFuture<String> requestAsync(String url) {
+        return requestAsync(url, 0);
+    }
+
+    private CompletableFuture<String> requestAsync(String url, int attempt) {
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (attempt == 0) {
+            retryBudget.onRequest();
+        }
+        long start = listener != null ? started(url) : 0;
+        CompletableFuture<HttpResponse<String>> sent;
+        try {
+            sent = client.sendAsync(buildRequest(url), HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return sent.handle((response, error) -> {
+            if (listener != null) {
+                listener.onRequestEnd(url, response != null ? response.statusCode() : -1, System.nanoTime() - start, error);
+            }
+            if (response != null && !isRetriable(response.statusCode())) {
+                circuitBreaker.onSuccess();
+                return CompletableFuture.completedFuture(response.statusCode() == 200 ? response.body() : null);
+            }
+            circuitBreaker.onFailure();
+            if (attempt >= maxRetries || !retryBudget.tryRetry()) {
+                return CompletableFuture.<String>completedFuture(null);
+            }
+            Executor delayed = CompletableFuture.delayedExecutor(backoff(attempt), TimeUnit.MILLISECONDS, executor);
+            return CompletableFuture.runAsync(() -> { }, delayed).thenCompose(ignored -> requestAsync(url, attempt + 1));
+        }).thenCompose(result -> result);
+    }
+
+    /**
+     * Сервис временно недоступен и запросы к нему не выполняются
+     */
+    public boolean isCircuitOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    /**
+     * Стоит ли повторять запрос с таким кодом ответа
+     * Ответы 4xx, кроме 429, означают ошибку в запросе, а не в работе сервиса
+     */
+    private static boolean isRetriable(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Задержка перед повтором: удваивается с каждым повтором, случайно от половины до полного значения
+     */
+    private long backoff(int attempt) {
+        long max = retryBackoffMillis << Math.min(attempt, 16);
+        return max / 2 + ThreadLocalRandom.current().nextLong(max / 2 + 1);
+    }
+
+    private long started(String url) {
+        listener.onRequestStart(url);
+        return System.nanoTime();
+    }
+
+    private HttpRequest buildRequest(String url) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("User-Agent", userAgent);
+        if (requestTimeout != null) {
+            request.timeout(requestTimeout);
+        }
+        return request.build();
+    }
+}
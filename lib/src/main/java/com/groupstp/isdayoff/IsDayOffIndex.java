@@ -0,0 +1,182 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.CacheFormatType;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Индекс загруженных в память годов для одного набора параметров(страна, сокращенные дни, COVID, шестидневка)
+ * Поиск года - обращение к массиву, без файлового и сетевого ввода-вывода
+ */
+public class IsDayOffIndex {
+    static final int MIN_YEAR = 1900;
+    static final int MAX_YEAR = 2199;
+
+    private static final Map<Key, IsDayOffIndex> SHARED = new ConcurrentHashMap<>();
+
+    private final IsDayOffProps properties;
+    private final AtomicReferenceArray<IsDayOffYear> years = new AtomicReferenceArray<>(MAX_YEAR - MIN_YEAR + 1);
+    private final Map<Integer, CompletableFuture<IsDayOffYear>> loading = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<IsDayOffYear>> refreshing = new ConcurrentHashMap<>();
+
+    public IsDayOffIndex(IsDayOffProps properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Общий для всей JVM индекс для набора параметров
+     * Все экземпляры IsDayOff с одинаковыми параметрами, адресом сервиса и настройками кэша
+     * используют одни и те же данные и одну загрузку каждого года.
+     * Экземпляры с разными адресами или кэшами не получают годы друг друга
+     * @param builder Параметры экземпляра
+     * @return Индекс, один для всех экземпляров с равными параметрами
+     */
+    public static IsDayOffIndex shared(IsDayOffBuilder builder) {
+        IsDayOffProps properties = new IsDayOffProps(builder);
+        return SHARED.computeIfAbsent(new Key(properties, builder), key -> new IsDayOffIndex(properties));
+    }
+
+    /**
+     * Год входит в поддерживаемые: данные остальных годов не хранятся и не запрашиваются,
+     * а их дни получают тип DayType.ERROR_DATE
+     */
+    static boolean isSupported(int year) {
+        return year >= MIN_YEAR && year <= MAX_YEAR;
+    }
+
+    /**
+     * Получить год из памяти
+     * @param year Год
+     * @return Данные года или null, если год еще не загружен
+     */
+    @Nullable
+    public IsDayOffYear get(int year) {
+        if (!isSupported(year)) {
+            return null;
+        }
+        return years.get(year - MIN_YEAR);
+    }
+
+    /**
+     * Сохранить год в памяти
+     * Данные года неизменяемы и заменяются целиком одной атомарной операцией, поэтому читатели
+     * без блокировок видят либо прежние, либо новые данные. Более старые данные, например прочитанные
+     * из файла одновременно с обновлением, не заменяют более новые
+     * @param year Данные года
+     */
+    public void put(IsDayOffYear year) {
+        if (!isSupported(year.getYear())) {
+            return;
+        }
+        int index = year.getYear() - MIN_YEAR;
+        IsDayOffYear current;
+        do {
+            current = years.get(index);
+            if (current != null && current.getFetchedAt() > year.getFetchedAt()) {
+                return;
+            }
+        } while (!years.compareAndSet(index, current, year));
+    }
+
+    /**
+     * Загрузить год, если его загрузка еще не идет
+     * Все одновременные вызовы для одного года получают результат одной загрузки
+     * @param year Год
+     * @param loader Загрузка года, вызывается только если другой загрузки этого года сейчас нет
+     * @return Результат загрузки
+     */
+    public CompletableFuture<IsDayOffYear> load(int year, Supplier<CompletableFuture<IsDayOffYear>> loader) {
+        return coalesce(loading, year, loader);
+    }
+
+    /**
+     * Обновить год у сервиса, если его обновление еще не идет
+     * Обновления объединяются отдельно от загрузок: загрузка может вернуть устаревшие данные с диска
+     * @param year Год
+     * @param refresher Запрос года у сервиса, вызывается только если другого обновления этого года сейчас нет
+     * @return Результат обновления
+     */
+    public CompletableFuture<IsDayOffYear> refresh(int year, Supplier<CompletableFuture<IsDayOffYear>> refresher) {
+        return coalesce(refreshing, year, refresher);
+    }
+
+    private static CompletableFuture<IsDayOffYear> coalesce(Map<Integer, CompletableFuture<IsDayOffYear>> loading, int year,
+                                                            Supplier<CompletableFuture<IsDayOffYear>> loader) {
+        CompletableFuture<IsDayOffYear> future = new CompletableFuture<>();
+        CompletableFuture<IsDayOffYear> running = loading.putIfAbsent(year, future);
+        if (running != null) {
+            return running;
+        }
+        try {
+            loader.get().whenComplete((result, error) -> {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(result);
+                }
+                loading.remove(year, future);
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            loading.remove(year, future);
+        }
+        return future;
+    }
+
+    public IsDayOffProps getProperties() {
+        return properties;
+    }
+
+    /**
+     * Ключ общего индекса: параметры запроса и все настройки, от которых зависят данные годов
+     */
+    private static final class Key {
+        private final IsDayOffProps properties;
+        private final String baseUrl;
+        private final Boolean cache;
+        private final String cacheDir;
+        private final Integer cacheStorageDays;
+        private final CacheFormatType cacheFormat;
+        @Nullable
+        private final IsDayOffStorage storage;
+
+        Key(IsDayOffProps properties, IsDayOffBuilder builder) {
+            this.properties = properties;
+            this.baseUrl = builder.getBaseUrl();
+            this.cache = builder.getCache();
+            this.cacheDir = builder.getCacheDir();
+            this.cacheStorageDays = builder.getCacheStorageDays();
+            this.cacheFormat = builder.getCacheFormat();
+            this.storage = builder.getStorage();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key that = (Key) o;
+            return properties.equals(that.properties)
+                    && Objects.equals(baseUrl, that.baseUrl)
+                    && Objects.equals(cache, that.cache)
+                    && Objects.equals(cacheDir, that.cacheDir)
+                    && Objects.equals(cacheStorageDays, that.cacheStorageDays)
+                    && cacheFormat == that.cacheFormat
+                    && storage == that.storage;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(properties, baseUrl, cache, cacheDir, cacheStorageDays, cacheFormat, System.identityHashCode(storage));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.LookupSourceType;
+
+import javax.annotation.Nullable;
+
+/**
+ * Получатель событий библиотеки для метрик и трассировки
+ * Все методы по умолчанию ничего не делают, достаточно переопределить нужные.
+ * Методы вызываются в потоках библиотеки и не должны блокироваться.
+ * Если получатель не указан, события не создаются
+ * @see IsDayOffBuilder#setListener(IsDayOffListener)
+ * @see IsDayOffMetrics
+ */
+public interface IsDayOffListener {
+    /**
+     * Поиск года в памяти, файле кэша или у сервиса
+     * @param properties Параметры
+     * @param year Год
+     * @param source Где искали год
+     * @param hit true, если год найден и может быть использован
+     */
+    default void onLookup(IsDayOffProps properties, int year, LookupSourceType source, boolean hit) {
+    }
+
+    /**
+     * Чтение года из файла кэша
+     * @param properties Параметры
+     * @param year Год
+     * @param nanos Время чтения в наносекундах
+     */
+    default void onCacheRead(IsDayOffProps properties, int year, long nanos) {
+    }
+
+    /**
+     * Запись года в файл кэша
+     * @param properties Параметры
+     * @param year Год
+     * @param nanos Время записи в наносекундах
+     */
+    default void onCacheWrite(IsDayOffProps properties, int year, long nanos) {
+    }
+
+    /**
+     * Начало запроса к сервису
+     * @param url Адрес
+     */
+    default void onRequestStart(String url) {
+    }
+
+    /**
+     * Завершение запроса к сервису
+     * @param url Адрес
+     * @param statusCode Код ответа или -1, если ответ не получен
+     * @param nanos Время запроса в наносекундах
+     * @param error Ошибка, если ответ не получен
+     */
+    default void onRequestEnd(String url, int statusCode, long nanos, @Nullable Throwable error) {
+    }
+
+    /**
+     * Фоновое обновление года
+     * @param properties Параметры
+     * @param year Год
+     * @param success true, если год удалось обновить
+     */
+    default void onRefresh(IsDayOffProps properties, int year, boolean success) {
+    }
+
+    /**
+     * Ошибка, после которой работа продолжается без кэша, блокировки или с повтором позже.
+     * Библиотека не пишет ошибки в консоль, они передаются только сюда
+     * @param operation Что выполнялось
+     * @param error Ошибка
+     */
+    default void onError(String operation, Throwable error) {
+    }
+}
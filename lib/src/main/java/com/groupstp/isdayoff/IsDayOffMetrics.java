@@ -0,0 +1,294 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.LookupSourceType;
+
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Готовый получатель событий со счетчиками и гистограммами
+ * Может быть зарегистрирован в JMX
+ * <pre>
+ *     IsDayOffMetrics metrics = new IsDayOffMetrics();
+ *     metrics.register("main");
+ *     IsDayOff isDayOff = IsDayOff.Builder().setListener(metrics).build();
+ * </pre>
+ */
+public class IsDayOffMetrics implements IsDayOffListener, IsDayOffMetricsMXBean {
+    private final Map<LookupSourceType, YearCounters> hits = new ConcurrentHashMap<>();
+    private final Map<LookupSourceType, YearCounters> misses = new ConcurrentHashMap<>();
+    private final YearCounters refreshes = new YearCounters();
+    private final YearCounters refreshFailures = new YearCounters();
+    private final Counters errors = new Counters();
+    private final Counters statusCodes = new Counters();
+    private final Histogram requestLatency = new Histogram();
+    private final Histogram cacheReadLatency = new Histogram();
+    private final Histogram cacheWriteLatency = new Histogram();
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+
+    public IsDayOffMetrics() {
+        for (LookupSourceType source : LookupSourceType.values()) {
+            hits.put(source, new YearCounters());
+            misses.put(source, new YearCounters());
+        }
+    }
+
+    /**
+     * Зарегистрировать метрики в платформенном MBeanServer
+     * под именем com.groupstp.isdayoff:type=IsDayOffMetrics,name=...
+     * @param name Имя, отличающее экземпляры метрик
+     * @return Имя MBean или null, если зарегистрировать не удалось
+     */
+    @Nullable
+    public ObjectName register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("com.groupstp.isdayoff:type=IsDayOffMetrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            onError("jmx register", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void onLookup(IsDayOffProps properties, int year, LookupSourceType source, boolean hit) {
+        (hit ? hits : misses).get(source).increment(properties, year);
+    }
+
+    @Override
+    public void onCacheRead(IsDayOffProps properties, int year, long nanos) {
+        cacheReadLatency.record(nanos);
+    }
+
+    @Override
+    public void onCacheWrite(IsDayOffProps properties, int year, long nanos) {
+        cacheWriteLatency.record(nanos);
+    }
+
+    @Override
+    public void onRequestStart(String url) {
+        requestsInFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onRequestEnd(String url, int statusCode, long nanos, @Nullable Throwable error) {
+        requestsInFlight.decrementAndGet();
+        statusCodes.increment(String.valueOf(statusCode));
+        requestLatency.record(nanos);
+    }
+
+    @Override
+    public void onRefresh(IsDayOffProps properties, int year, boolean success) {
+        (success ? refreshes : refreshFailures).increment(properties, year);
+    }
+
+    @Override
+    public void onError(String operation, Throwable error) {
+        errors.increment(operation);
+    }
+
+    @Override
+    public Map<String, Long> getMemoryHits() {
+        return hits.get(LookupSourceType.MEMORY).snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getMemoryMisses() {
+        return misses.get(LookupSourceType.MEMORY).snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getDiskHits() {
+        return hits.get(LookupSourceType.DISK).snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getDiskMisses() {
+        return misses.get(LookupSourceType.DISK).snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getNetworkHits() {
+        return hits.get(LookupSourceType.NETWORK).snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getNetworkMisses() {
+        return misses.get(LookupSourceType.NETWORK).snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getRefreshes() {
+        return refreshes.snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getRefreshFailures() {
+        return refreshFailures.snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        return errors.snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getStatusCodes() {
+        return statusCodes.snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getRequestLatency() {
+        return requestLatency.snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getCacheReadLatency() {
+        return cacheReadLatency.snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getCacheWriteLatency() {
+        return cacheWriteLatency.snapshot();
+    }
+
+    @Override
+    public int getRequestsInFlight() {
+        return requestsInFlight.get();
+    }
+
+    @Override
+    public void reset() {
+        for (LookupSourceType source : LookupSourceType.values()) {
+            hits.get(source).reset();
+            misses.get(source).reset();
+        }
+        refreshes.reset();
+        refreshFailures.reset();
+        errors.reset();
+        statusCodes.reset();
+        requestLatency.reset();
+        cacheReadLatency.reset();
+        cacheWriteLatency.reset();
+    }
+
+    /**
+     * Счетчики по ключу
+     */
+    private static final class Counters {
+        private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+        void increment(String key) {
+            counters.computeIfAbsent(key, k -> new LongAdder()).increment();
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> result = new TreeMap<>();
+            counters.forEach((key, counter) -> result.put(key, counter.sum()));
+            return result;
+        }
+
+        void reset() {
+            counters.clear();
+        }
+    }
+
+    /**
+     * Счетчики по параметрам и году
+     * Счетчик года создается при первом событии, после этого увеличение не выделяет память
+     */
+    private static final class YearCounters {
+        private final Map<IsDayOffProps, AtomicReferenceArray<LongAdder>> counters = new ConcurrentHashMap<>();
+        /**
+         * Годы вне поддерживаемых
+         */
+        private final Counters other = new Counters();
+
+        void increment(IsDayOffProps properties, int year) {
+            if (!IsDayOffIndex.isSupported(year)) {
+                other.increment(key(properties, year));
+                return;
+            }
+            AtomicReferenceArray<LongAdder> years = counters.get(properties);
+            if (years == null) {
+                years = counters.computeIfAbsent(properties, ignored -> new AtomicReferenceArray<>(IsDayOffIndex.MAX_YEAR - IsDayOffIndex.MIN_YEAR + 1));
+            }
+            int index = year - IsDayOffIndex.MIN_YEAR;
+            LongAdder counter = years.get(index);
+            if (counter == null) {
+                years.compareAndSet(index, null, new LongAdder());
+                counter = years.get(index);
+            }
+            counter.increment();
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> result = other.snapshot();
+            counters.forEach((properties, years) -> {
+                for (int i = 0; i < years.length(); i++) {
+                    LongAdder counter = years.get(i);
+                    if (counter != null) {
+                        result.merge(key(properties, IsDayOffIndex.MIN_YEAR + i), counter.sum(), Long::sum);
+                    }
+                }
+            });
+            return result;
+        }
+
+        void reset() {
+            counters.clear();
+            other.reset();
+        }
+
+        private static String key(IsDayOffProps properties, int year) {
+            return properties + "/" + year;
+        }
+    }
+
+    /**
+     * Гистограмма с фиксированными границами в миллисекундах
+     */
+    private static final class Histogram {
+        private static final long[] BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+        private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+
+        void record(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BOUNDS_MILLIS.length && millis >= BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+                result.put("<" + BOUNDS_MILLIS[i], counts.get(i));
+            }
+            result.put(">=" + BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1], counts.get(BOUNDS_MILLIS.length));
+            return result;
+        }
+
+        void reset() {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+        }
+    }
+}
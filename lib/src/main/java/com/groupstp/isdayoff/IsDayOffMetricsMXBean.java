@@ -0,0 +1,63 @@
+package com.groupstp.isdayoff;
+
+import java.util.Map;
+
+/**
+ * Метрики библиотеки в JMX
+ * Счетчики по годам имеют ключи из параметров запроса и года, например RUSSIA;pre=1;covid=0;sd=0/2021.
+ * Для экземпляров с собственными правилами к параметрам добавляется хэш правил
+ * @see IsDayOffMetrics
+ */
+public interface IsDayOffMetricsMXBean {
+    Map<String, Long> getMemoryHits();
+
+    Map<String, Long> getMemoryMisses();
+
+    Map<String, Long> getDiskHits();
+
+    Map<String, Long> getDiskMisses();
+
+    Map<String, Long> getNetworkHits();
+
+    Map<String, Long> getNetworkMisses();
+
+    Map<String, Long> getRefreshes();
+
+    Map<String, Long> getRefreshFailures();
+
+    /**
+     * Кол-во ошибок по операциям
+     * @see IsDayOffListener#onError(String, Throwable)
+     */
+    Map<String, Long> getErrors();
+
+    /**
+     * Кол-во ответов сервиса по кодам, -1 - ответ не получен
+     */
+    Map<String, Long> getStatusCodes();
+
+    /**
+     * Гистограмма времени запросов к сервису, ключ - верхняя граница в миллисекундах
+     */
+    Map<String, Long> getRequestLatency();
+
+    /**
+     * Гистограмма времени чтения файлов кэша, ключ - верхняя граница в миллисекундах
+     */
+    Map<String, Long> getCacheReadLatency();
+
+    /**
+     * Гистограмма времени записи файлов кэша, ключ - верхняя граница в миллисекундах
+     */
+    Map<String, Long> getCacheWriteLatency();
+
+    /**
+     * Кол-во запросов к сервису, которые выполняются сейчас
+     */
+    int getRequestsInFlight();
+
+    /**
+     * Сбросить все счетчики, кроме текущих запросов
+     */
+    void reset();
+}
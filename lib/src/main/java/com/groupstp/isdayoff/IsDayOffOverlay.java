@@ -0,0 +1,234 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+
+import javax.annotation.Nullable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * Собственные правила поверх календаря сервиса: отдельные дни, отрезки и "N-й день недели месяца"
+ * Правила применяются к данным года один раз при загрузке или обновлении, поэтому запросы
+ * к загруженному году не выполняют дополнительных проверок. Более поздние правила имеют приоритет.
+ * Экземпляр неизменяемый и участвует в сравнении параметров
+ * @see com.groupstp.isdayoff.IsDayOffBuilder#addOverride(LocalDate, DayType)
+ */
+public final class IsDayOffOverlay {
+    /**
+     * Без правил
+     */
+    public static final IsDayOffOverlay EMPTY = new IsDayOffOverlay(Collections.emptyList());
+
+    private final List<Rule> rules;
+
+    private IsDayOffOverlay(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Правило для отрезка дат
+     * @param from Первый день, включительно
+     * @param to Последний день, включительно
+     * @param dayType Тип дня
+     * @return Новый набор правил с добавленным правилом
+     */
+    public IsDayOffOverlay with(LocalDate from, LocalDate to, DayType dayType) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Range end " + to + " is before start " + from);
+        }
+        return with(new Rule(from, to, null, 0, null, dayType));
+    }
+
+    /**
+     * Правило для N-го дня недели месяца
+     * @param month Месяц или null - каждый месяц
+     * @param ordinal Номер дня недели в месяце: от 1 до 5, или от -1 до -5 с конца месяца
+     * @param dayOfWeek День недели
+     * @param dayType Тип дня
+     * @return Новый набор правил с добавленным правилом
+     */
+    public IsDayOffOverlay with(@Nullable Month month, int ordinal, DayOfWeek dayOfWeek, DayType dayType) {
+        if (ordinal == 0 || ordinal < -5 || ordinal > 5) {
+            throw new IllegalArgumentException("Ordinal must be from 1 to 5 or from -1 to -5: " + ordinal);
+        }
+        return with(new Rule(null, null, month, ordinal, dayOfWeek, dayType));
+    }
+
+    private IsDayOffOverlay with(Rule rule) {
+        List<Rule> result = new ArrayList<>(rules);
+        result.add(rule);
+        return new IsDayOffOverlay(Collections.unmodifiableList(result));
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Данные года с примененными правилами
+     * Время получения данных не меняется, поэтому срок хранения и обновление считаются по исходным данным
+     * @param year Данные года от сервиса или из кэша
+     * @return Новые данные года или тот же экземпляр, если ни одно правило не попадает в год
+     */
+    @Nullable
+    IsDayOffYear apply(@Nullable IsDayOffYear year) {
+        if (year == null || rules.isEmpty()) {
+            return year;
+        }
+        long first = IsDayOffYear.firstEpochDay(year.getYear());
+        byte[] packed = year.getPacked().clone();
+        boolean[] changed = new boolean[1];
+        for (Rule rule : rules) {
+            int code = IsDayOffYear.codeOf(rule.dayType);
+            rule.forEachDay(first, first + year.length(), epochDay -> {
+                int day = (int) (epochDay - first);
+                int shift = (day & 3) << 1;
+                packed[day >> 2] = (byte) ((packed[day >> 2] & ~(3 << shift)) | code << shift);
+                changed[0] = true;
+            });
+        }
+        return changed[0] ? IsDayOffYear.fromPacked(year.getYear(), packed, year.getFetchedAt()) : year;
+    }
+
+    /**
+     * Ответ сервиса с примененными правилами
+     * @param response Строка из id типов дней, по символу на день
+     * @param startEpochDay Первый день ответа, как номер дня от 1970-01-01
+     * @return Строка с примененными правилами или response без изменений, если это не список типов дней
+     */
+    @Nullable
+    String apply(@Nullable String response, long startEpochDay) {
+        if (response == null || rules.isEmpty()) {
+            return response;
+        }
+        for (int i = 0; i < response.length(); i++) {
+            if (DayType.fromCode(response.charAt(i)) == null) {
+                return response;
+            }
+        }
+        char[] days = response.toCharArray();
+        for (Rule rule : rules) {
+            char id = rule.dayType.getId().charAt(0);
+            rule.forEachDay(startEpochDay, startEpochDay + days.length, epochDay -> days[(int) (epochDay - startEpochDay)] = id);
+        }
+        return new String(days);
+    }
+
+    /**
+     * Тип одного дня с примененными правилами
+     * @param epochDay День, как номер дня от 1970-01-01
+     * @param dayType Тип дня от сервиса. Коды ошибок не заменяются
+     */
+    DayType apply(long epochDay, DayType dayType) {
+        if (rules.isEmpty() || IsDayOffYear.codeOf(dayType) < 0) {
+            return dayType;
+        }
+        DayType[] result = {dayType};
+        for (Rule rule : rules) {
+            rule.forEachDay(epochDay, epochDay + 1, day -> result[0] = rule.dayType);
+        }
+        return result[0];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return rules.equals(((IsDayOffOverlay) o).rules);
+    }
+
+    @Override
+    public int hashCode() {
+        return rules.hashCode();
+    }
+
+    /**
+     * Одно правило: отрезок дат (from, to) или N-й день недели месяца (month, ordinal, dayOfWeek)
+     */
+    private static final class Rule {
+        @Nullable
+        private final LocalDate from;
+        @Nullable
+        private final LocalDate to;
+        @Nullable
+        private final Month month;
+        private final int ordinal;
+        @Nullable
+        private final DayOfWeek dayOfWeek;
+        private final DayType dayType;
+
+        Rule(@Nullable LocalDate from, @Nullable LocalDate to, @Nullable Month month, int ordinal,
+             @Nullable DayOfWeek dayOfWeek, DayType dayType) {
+            if (IsDayOffYear.codeOf(dayType) < 0) {
+                throw new IllegalArgumentException("Not a day type: " + dayType);
+            }
+            this.from = from;
+            this.to = to;
+            this.month = month;
+            this.ordinal = ordinal;
+            this.dayOfWeek = dayOfWeek;
+            this.dayType = dayType;
+        }
+
+        /**
+         * Дни правила на отрезке
+         * @param fromEpochDay Первый день отрезка
+         * @param toEpochDay День, следующий за последним днем отрезка
+         * @param action Вызывается для каждого дня правила, как номера дня от 1970-01-01
+         */
+        void forEachDay(long fromEpochDay, long toEpochDay, LongConsumer action) {
+            if (from != null) {
+                long end = Math.min(toEpochDay, to.toEpochDay() + 1);
+                for (long day = Math.max(fromEpochDay, from.toEpochDay()); day < end; day++) {
+                    action.accept(day);
+                }
+                return;
+            }
+            YearMonth last = YearMonth.from(LocalDate.ofEpochDay(toEpochDay - 1));
+            for (YearMonth current = YearMonth.from(LocalDate.ofEpochDay(fromEpochDay)); !current.isAfter(last); current = current.plusMonths(1)) {
+                if (month != null && current.getMonth() != month) {
+                    continue;
+                }
+                LocalDate date = current.atDay(1).with(TemporalAdjusters.dayOfWeekInMonth(ordinal, dayOfWeek));
+                long day = date.toEpochDay();
+                if (date.getMonth() == current.getMonth() && day >= fromEpochDay && day < toEpochDay) {
+                    action.accept(day);
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Rule that = (Rule) o;
+            return ordinal == that.ordinal
+                    && Objects.equals(from, that.from)
+                    && Objects.equals(to, that.to)
+                    && month == that.month
+                    && dayOfWeek == that.dayOfWeek
+                    && dayType == that.dayType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to, month, ordinal, dayOfWeek, dayType);
+        }
+    }
+}
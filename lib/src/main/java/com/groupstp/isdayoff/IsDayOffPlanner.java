@@ -0,0 +1,297 @@
+package com.groupstp.isdayoff;
+
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Планировщик запросов годов к сервису
+ * Годы, которых нет в кэше, собираются в течение короткого окна. Одинаковые годы с одинаковыми параметрами запроса
+ * от разных экземпляров IsDayOff, например отличающихся только собственными правилами или папкой кэша,
+ * запрашиваются один раз. Соседние годы объединяются в запросы date1/date2 не длиннее maxRangeDays дней,
+ * а ответ делится обратно на годы: с ограничением isdayoff.ru в 366 дней это возможно только для своего сервера
+ * с maxRangeDays от 730.
+ * Запросы к одному хосту выполняются не больше maxConcurrentRequests одновременно и не чаще requestsPerSecond в секунду.
+ * Один планировщик можно передать нескольким экземплярам IsDayOff, тогда ограничения для хоста у них общие
+ * @see com.groupstp.isdayoff.IsDayOffBuilder#setPlanner(IsDayOffPlanner)
+ */
+public class IsDayOffPlanner {
+    /**
+     * Максимальная длина отрезка date1/date2 в API isdayoff.ru
+     */
+    public static final int API_MAX_RANGE_DAYS = 366;
+
+    private final long windowNanos;
+    private final int maxConcurrentRequests;
+    private final long intervalNanos;
+    private final int maxRangeDays;
+    private final Executor executor;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Окно 10 мс, 4 одновременных запроса и 10 запросов в секунду на хост, отрезки не длиннее ограничения API.
+     * Соседние годы не объединяются, одинаковые годы от разных экземпляров запрашиваются один раз
+     */
+    public IsDayOffPlanner() {
+        this(Duration.ofMillis(10), 4, 10, API_MAX_RANGE_DAYS);
+    }
+
+    /**
+     * @param window Время сбора годов перед отправкой запросов
+     * @param maxConcurrentRequests Максимальное кол-во одновременных запросов к одному хосту
+     * @param requestsPerSecond Максимальное кол-во запросов к одному хосту в секунду, 0 - не ограничивать
+     * @param maxRangeDays Максимальная длина одного запроса в днях. Для isdayoff.ru - не больше 366,
+     *                     поэтому соседние годы объединяются только при обращении к серверу без этого ограничения,
+     *                     например IsDayOffServer, и значении от 730
+     */
+    public IsDayOffPlanner(Duration window, int maxConcurrentRequests, double requestsPerSecond, int maxRangeDays) {
+        this(window, maxConcurrentRequests, requestsPerSecond, maxRangeDays, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor Пул потоков для отправки запросов после окна и задержек
+     * @see #IsDayOffPlanner(Duration, int, double, int)
+     */
+    public IsDayOffPlanner(Duration window, int maxConcurrentRequests, double requestsPerSecond, int maxRangeDays, Executor executor) {
+        this.windowNanos = window.toNanos();
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+        this.maxRangeDays = maxRangeDays;
+        this.executor = executor;
+    }
+
+    /**
+     * Запросить год у сервиса
+     * @param baseUrl Адрес API
+     * @param properties Параметры запроса. Годы объединяются только с годами с теми же адресом и параметрами запроса,
+     *                   собственные правила не учитываются: ответ возвращается без них
+     * @param year Год
+     * @param upstream Запрос отрезка дат включительно, возвращает ответ сервиса или null.
+     *                 Исключение считается неудачным запросом. Если запрос не удался, годы запрашиваются
+     *                 через upstream следующего экземпляра, запросившего те же годы
+     * @return Строка с id типов дней года или null, если получить ее не удалось
+     */
+    public CompletableFuture<String> requestYear(String baseUrl, IsDayOffProps properties, int year,
+                                                 BiFunction<LocalDate, LocalDate, CompletableFuture<String>> upstream) {
+        return hosts.computeIfAbsent(String.valueOf(URI.create(baseUrl).getAuthority()), ignored -> new Host())
+                .add(baseUrl, properties, year, upstream);
+    }
+
+    /**
+     * Разбить годы одной группы на запросы: подряд идущие годы, пока длина не превышает maxRangeDays
+     */
+    private List<Call> plan(Group group) {
+        List<Call> calls = new ArrayList<>();
+        Call current = null;
+        for (Map.Entry<Integer, CompletableFuture<String>> entry : group.years.entrySet()) {
+            int year = entry.getKey();
+            int length = Year.of(year).length();
+            if (current == null || current.lastYear() != year - 1 || current.days + length > maxRangeDays) {
+                current = new Call(new ArrayList<>(group.upstreams), 0);
+                calls.add(current);
+            }
+            current.add(year, length, entry.getValue());
+        }
+        return calls;
+    }
+
+    /**
+     * Очередь и ограничения одного хоста
+     */
+    private final class Host {
+        /**
+         * Группы по адресу и параметрам запроса
+         */
+        private Map<String, Group> batch = new LinkedHashMap<>();
+        private final Deque<Call> queue = new ArrayDeque<>();
+        private int running;
+        private long nextStart = System.nanoTime();
+        private boolean pumpScheduled;
+
+        synchronized CompletableFuture<String> add(String baseUrl, IsDayOffProps properties, int year,
+                                                   BiFunction<LocalDate, LocalDate, CompletableFuture<String>> upstream) {
+            if (batch.isEmpty()) {
+                Executor delayed = CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS, executor);
+                delayed.execute(this::flush);
+            }
+            Group group = batch.computeIfAbsent(groupKey(baseUrl, properties), ignored -> new Group());
+            group.upstreams.add(upstream);
+            return group.years.computeIfAbsent(year, ignored -> new CompletableFuture<>());
+        }
+
+        private void flush() {
+            synchronized (this) {
+                for (Group group : batch.values()) {
+                    queue.addAll(plan(group));
+                }
+                batch = new LinkedHashMap<>();
+            }
+            pump();
+        }
+
+        /**
+         * Запустить запросы из очереди, пока позволяют ограничения
+         * Если следующий запрос еще рано отправлять, насос запускается повторно через оставшееся время
+         */
+        private void pump() {
+            List<Call> started = new ArrayList<>();
+            synchronized (this) {
+                while (running < maxConcurrentRequests && !queue.isEmpty()) {
+                    long now = System.nanoTime();
+                    if (now < nextStart) {
+                        if (!pumpScheduled) {
+                            pumpScheduled = true;
+                            Executor delayed = CompletableFuture.delayedExecutor(nextStart - now, TimeUnit.NANOSECONDS, executor);
+                            delayed.execute(() -> {
+                                synchronized (this) {
+                                    pumpScheduled = false;
+                                }
+                                pump();
+                            });
+                        }
+                        break;
+                    }
+                    nextStart = Math.max(now, nextStart) + intervalNanos;
+                    running++;
+                    started.add(queue.poll());
+                }
+            }
+            for (Call call : started) {
+                execute(call);
+            }
+        }
+
+        private void execute(Call call) {
+            CompletableFuture<String> response;
+            try {
+                response = call.upstream().apply(LocalDate.of(call.firstYear, 1, 1), LocalDate.of(call.lastYear(), 12, 31));
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((result, error) -> {
+                List<Call> retry = call.complete(error == null ? result : null);
+                synchronized (this) {
+                    running--;
+                    for (int i = retry.size() - 1; i >= 0; i--) {
+                        queue.addFirst(retry.get(i));
+                    }
+                }
+                pump();
+            });
+        }
+    }
+
+    /**
+     * Ключ группы: адрес и параметры, которые передаются сервису
+     */
+    private static String groupKey(String baseUrl, IsDayOffProps properties) {
+        return baseUrl + "|" + properties.getLocale().getId()
+                + "|" + properties.getPreHolidaysDay()
+                + "|" + properties.getCovidWorkingDays()
+                + "|" + properties.getSixDaysWorkWeek();
+    }
+
+    /**
+     * Годы с одними адресом и параметрами запроса, собранные за окно, и запросы всех экземпляров, которым они нужны
+     */
+    private static final class Group {
+        private final Set<BiFunction<LocalDate, LocalDate, CompletableFuture<String>>> upstreams = new LinkedHashSet<>();
+        private final TreeMap<Integer, CompletableFuture<String>> years = new TreeMap<>();
+    }
+
+    /**
+     * Один запрос к сервису: подряд идущие годы начиная с firstYear
+     */
+    private static final class Call {
+        private final List<BiFunction<LocalDate, LocalDate, CompletableFuture<String>>> upstreams;
+        private final int upstream;
+        private final List<CompletableFuture<String>> futures = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        private int firstYear;
+        private int days;
+
+        /**
+         * @param upstreams Запросы экземпляров, которым нужны годы
+         * @param upstream Номер запроса, через который выполняется этот вызов
+         */
+        Call(List<BiFunction<LocalDate, LocalDate, CompletableFuture<String>>> upstreams, int upstream) {
+            this.upstreams = upstreams;
+            this.upstream = upstream;
+        }
+
+        BiFunction<LocalDate, LocalDate, CompletableFuture<String>> upstream() {
+            return upstreams.get(upstream);
+        }
+
+        void add(int year, int length, CompletableFuture<String> future) {
+            if (futures.isEmpty()) {
+                firstYear = year;
+            }
+            futures.add(future);
+            lengths.add(length);
+            days += length;
+        }
+
+        int lastYear() {
+            return firstYear + futures.size() - 1;
+        }
+
+        /**
+         * Разделить ответ на годы
+         * Если сервис отклонил объединенный запрос, например из-за длины отрезка, годы запрашиваются по одному.
+         * Если запрос не удался, повторы уже выполнены клиентом: годы запрашиваются через следующий экземпляр,
+         * а если его нет - получают null
+         * @param response Ответ сервиса
+         * @return Запросы, которые нужно выполнить вместо этого, иначе пустой список
+         */
+        List<Call> complete(@Nullable String response) {
+            if (futures.size() > 1 && response != null && response.length() != days) {
+                List<Call> single = new ArrayList<>();
+                for (int i = 0; i < futures.size(); i++) {
+                    Call call = new Call(upstreams, upstream);
+                    call.add(firstYear + i, lengths.get(i), futures.get(i));
+                    single.add(call);
+                }
+                return single;
+            }
+            if (response == null && upstream + 1 < upstreams.size()) {
+                Call next = new Call(upstreams, upstream + 1);
+                for (int i = 0; i < futures.size(); i++) {
+                    next.add(firstYear + i, lengths.get(i), futures.get(i));
+                }
+                List<Call> retry = new ArrayList<>();
+                retry.add(next);
+                return retry;
+            }
+            if (futures.size() == 1 || response == null) {
+                for (CompletableFuture<String> future : futures) {
+                    future.complete(response);
+                }
+                return new ArrayList<>();
+            }
+            int position = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).complete(response.substring(position, position + lengths.get(i)));
+                position += lengths.get(i);
+            }
+            return new ArrayList<>();
+        }
+    }
+}
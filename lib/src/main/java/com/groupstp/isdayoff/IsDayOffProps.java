@@ -2,17 +2,31 @@ package com.groupstp.isdayoff;
 
 import com.groupstp.isdayoff.enums.LocalesType;
 
+import java.util.Objects;
+
+/**
+ * Параметры запроса к сервису: страна, сокращенные дни, COVID, шестидневка и собственные правила
+ * Экземпляры с одинаковыми параметрами равны и используют общие данные
+ * @see com.groupstp.isdayoff.IsDayOffIndex#shared(IsDayOffBuilder)
+ */
 public class IsDayOffProps {
     private final LocalesType locale;
     private final Integer preHolidaysDay;
     private final Integer sixDaysWorkWeek;
     private final Integer covidWorkingDays;
+    private final IsDayOffOverlay overlay;
+    /**
+     * Параметры используются как ключ при каждом поиске года, поэтому хэш вычисляется один раз
+     */
+    private final int hash;
 
     public IsDayOffProps(IsDayOffBuilder builder) {
         locale = builder.getLocale();
         preHolidaysDay = builder.getPreHolidaysDay();
         sixDaysWorkWeek = builder.getSixDaysWorkWeek();
         covidWorkingDays = builder.getCovidWorkingDays();
+        overlay = builder.getOverlay();
+        hash = Objects.hash(locale, preHolidaysDay, sixDaysWorkWeek, covidWorkingDays, overlay);
     }
 
     public LocalesType getLocale() {
@@ -30,4 +44,43 @@ public class IsDayOffProps {
     public Integer getCovidWorkingDays() {
         return covidWorkingDays;
     }
+
+    /**
+     * Собственные правила поверх календаря сервиса
+     * Не влияют на ключи хранилищ: в кэше хранятся данные сервиса, правила применяются при загрузке
+     */
+    public IsDayOffOverlay getOverlay() {
+        return overlay;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IsDayOffProps that = (IsDayOffProps) o;
+        return hash == that.hash
+                && locale == that.locale
+                && Objects.equals(preHolidaysDay, that.preHolidaysDay)
+                && Objects.equals(sixDaysWorkWeek, that.sixDaysWorkWeek)
+                && Objects.equals(covidWorkingDays, that.covidWorkingDays)
+                && overlay.equals(that.overlay);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Параметры в виде RUSSIA;pre=1;covid=0;sd=0, с хэшем собственных правил, если они есть
+     */
+    @Override
+    public String toString() {
+        String result = locale.name() + ";pre=" + preHolidaysDay + ";covid=" + covidWorkingDays + ";sd=" + sixDaysWorkWeek;
+        return overlay.isEmpty() ? result : result + ";overlay=" + Integer.toHexString(overlay.hashCode());
+    }
 }
@@ -0,0 +1,119 @@
+package com.groupstp.isdayoff;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.Calendar;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Фоновое обновление кэша
+ * Каждый загруженный год обновляется за refreshAhead до истечения срока хранения,
+ * со случайным сдвигом до refreshJitter, чтобы разные узлы не обновлялись одновременно.
+ * Все экземпляры используют один фоновый поток
+ */
+public class IsDayOffRefresher {
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final IntFunction<CompletableFuture<IsDayOffYear>> fetch;
+    private final IntFunction<IsDayOffYear> currentYear;
+    private final Integer cacheStorageDays;
+    private final long refreshAheadMillis;
+    private final long refreshJitterMillis;
+    private final Set<Integer> scheduled = ConcurrentHashMap.newKeySet();
+    private final IsDayOffProps properties;
+    @Nullable
+    private final IsDayOffListener listener;
+
+    /**
+     * @param builder Параметры
+     * @param fetch Запрос года у сервиса с сохранением в кэш
+     * @param currentYear Год в памяти. Если его уже обновил другой экземпляр, обновление переносится на новый срок
+     */
+    public IsDayOffRefresher(IsDayOffBuilder builder, IntFunction<CompletableFuture<IsDayOffYear>> fetch,
+                             IntFunction<IsDayOffYear> currentYear) {
+        this.fetch = fetch;
+        this.currentYear = currentYear;
+        this.cacheStorageDays = builder.getCacheStorageDays();
+        this.refreshAheadMillis = builder.getRefreshAhead().toMillis();
+        this.refreshJitterMillis = builder.getRefreshJitter().toMillis();
+        this.properties = new IsDayOffProps(builder);
+        this.listener = builder.getListener();
+    }
+
+    /**
+     * Запланировать обновление года незадолго до истечения срока хранения
+     * Если срок уже истек, обновление запускается сразу
+     * @param year Данные года
+     */
+    public void schedule(IsDayOffYear year) {
+        schedule(year.getYear(), Math.max(0, earliestRefreshTime(year) + jitter() - System.currentTimeMillis()));
+    }
+
+    /**
+     * Время обновления года без случайного сдвига: за refreshAhead и refreshJitter до истечения срока хранения
+     */
+    private long earliestRefreshTime(IsDayOffYear year) {
+        Calendar expiry = Calendar.getInstance();
+        expiry.setTimeInMillis(year.getFetchedAt());
+        expiry.add(Calendar.DAY_OF_YEAR, cacheStorageDays);
+        return expiry.getTimeInMillis() - refreshAheadMillis - refreshJitterMillis;
+    }
+
+    /**
+     * Задача держит обновление через слабую ссылку: когда экземпляр IsDayOff больше не используется,
+     * его обновления не выполняются
+     */
+    private void schedule(int year, long delayMillis) {
+        if (scheduled.add(year)) {
+            WeakReference<IsDayOffRefresher> self = new WeakReference<>(this);
+            Scheduler.INSTANCE.schedule(() -> {
+                IsDayOffRefresher refresher = self.get();
+                if (refresher != null) {
+                    refresher.refresh(year);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh(int year) {
+        scheduled.remove(year);
+        IsDayOffYear current = currentYear.apply(year);
+        if (current != null && earliestRefreshTime(current) > System.currentTimeMillis()) {
+            // Год уже обновлен другим экземпляром с тем же индексом
+            schedule(current);
+            return;
+        }
+        fetch.apply(year).whenComplete((result, error) -> {
+            if (listener != null) {
+                listener.onRefresh(properties, year, result != null);
+            }
+            if (result != null) {
+                schedule(result);
+            } else {
+                schedule(year, RETRY_DELAY_MILLIS + jitter());
+            }
+        });
+    }
+
+    private long jitter() {
+        return refreshJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(refreshJitterMillis) : 0;
+    }
+
+    /**
+     * Общий для всех экземпляров поток обновления, создается при первом использовании
+     */
+    private static final class Scheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "isdayoff-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.groupstp.isdayoff;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение повторных запросов
+ * Каждый первый запрос добавляет ratio повтора, каждый повтор расходует один.
+ * Запас не превышает MAX_RETRIES повторов, поэтому при недоступном сервисе повторы
+ * быстро заканчиваются и не умножают нагрузку.
+ * Ограничение общее для всех экземпляров IsDayOff, обращающихся к одному хосту
+ */
+final class IsDayOffRetryBudget {
+    private static final long SCALE = 1000;
+    private static final long MAX_RETRIES = 10;
+
+    private static final Map<String, IsDayOffRetryBudget> SHARED = new ConcurrentHashMap<>();
+
+    private final long deposit;
+    private final AtomicLong balance = new AtomicLong(MAX_RETRIES * SCALE);
+
+    /**
+     * @param ratio Доля повторов от числа запросов
+     */
+    IsDayOffRetryBudget(double ratio) {
+        this.deposit = (long) (ratio * SCALE);
+    }
+
+    /**
+     * Общее для JVM ограничение повторов запросов к хосту
+     * @param baseUrl Адрес API
+     * @param ratio Доля повторов от числа запросов
+     * @return Ограничение, одно для всех экземпляров с тем же хостом и долей повторов
+     */
+    static IsDayOffRetryBudget shared(String baseUrl, double ratio) {
+        String key = URI.create(baseUrl).getAuthority() + "|" + ratio;
+        return SHARED.computeIfAbsent(key, ignored -> new IsDayOffRetryBudget(ratio));
+    }
+
+    void onRequest() {
+        balance.updateAndGet(value -> Math.min(MAX_RETRIES * SCALE, value + deposit));
+    }
+
+    boolean tryRetry() {
+        while (true) {
+            long value = balance.get();
+            if (value < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(value, value - SCALE)) {
+                return true;
+            }
+        }
+    }
+}
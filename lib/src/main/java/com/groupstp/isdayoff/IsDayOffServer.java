@@ -0,0 +1,348 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import com.groupstp.isdayoff.enums.LocalesType;
+import com.groupstp.isdayoff.enums.RefreshType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Сервер, совместимый с API isdayoff.ru
+ * Один процесс на хост или кластер обращается к сервису и хранит кэш, остальные получают данные у него.
+ * Поддерживаются getdata (year, month, day или date1/date2 с параметрами cc, pre, covid, sd) и isleap.
+ * Ответы за год готовятся один раз и отдаются частями без пересчета, соединения не закрываются между запросами.
+ * Запросы обрабатываются в виртуальных потоках, если они есть в JVM.
+ * Без TCP_NODELAY короткие ответы задерживаются на ~40 мс алгоритмом Нейгла. Настройка общая для всех HttpServer в JVM,
+ * поэтому сервер ее не меняет: при встраивании запустите JVM с -Dsun.net.httpserver.nodelay=true,
+ * {@link #main(String[])} включает ее сам
+ * <pre>
+ *     IsDayOffServer server = new IsDayOffServer(() -> IsDayOff.Builder().setCacheDir("/isDayOff/cache"), new InetSocketAddress(8080));
+ *     IsDayOff client = IsDayOff.Builder().setBaseUrl("http://localhost:8080/api/").build();
+ * </pre>
+ */
+public class IsDayOffServer implements AutoCloseable {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final int FLAGS = 8;
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final Supplier<IsDayOffBuilder> builders;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    /**
+     * Экземпляры IsDayOff по стране и флагам, создаются при первом запросе
+     */
+    private final AtomicReferenceArray<IsDayOff> instances = new AtomicReferenceArray<>(LocalesType.values().length * FLAGS);
+    /**
+     * Блокировки создания экземпляров: каждый экземпляр создается один раз, без лишних потоков обновления и прогрева.
+     * ReentrantLock, а не synchronized, чтобы виртуальный поток не закреплялся за потоком-носителем на время прогрева
+     */
+    private final ReentrantLock[] instanceLocks = new ReentrantLock[LocalesType.values().length * FLAGS];
+    private final Map<Integer, YearResponse> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Создать и запустить сервер
+     * @param builders Параметры для экземпляров IsDayOff: кэш, адрес сервиса и т.д.
+     *                 Страна и флаги задаются для каждого экземпляра из параметров запроса
+     * @param address Адрес и порт
+     */
+    public IsDayOffServer(Supplier<IsDayOffBuilder> builders, InetSocketAddress address) throws IOException {
+        this.builders = builders;
+        for (int i = 0; i < instanceLocks.length; i++) {
+            instanceLocks[i] = new ReentrantLock();
+        }
+        this.executor = newExecutor();
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/api/getdata", this::getData);
+        server.createContext("/api/isleap", this::isLeap);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Виртуальные потоки, если JVM их поддерживает, иначе обычный пул
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "isdayoff-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Адрес для IsDayOffBuilder.setBaseUrl
+     */
+    public String getBaseUrl() {
+        InetSocketAddress address = server.getAddress();
+        String host = address.getAddress().isAnyLocalAddress() ? "localhost" : address.getHostString();
+        return "http://" + host + ":" + address.getPort() + "/api/";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void getData(HttpExchange exchange) throws IOException {
+        Map<String, String> params = params(exchange.getRequestURI());
+        try {
+            int instance = instanceIndex(params);
+            if (instance < 0) {
+                sendError(exchange, DayType.ERROR_DATE);
+                return;
+            }
+            if (params.containsKey("date1")) {
+                LocalDate from = LocalDate.parse(params.get("date1"), DATE_FORMAT);
+                LocalDate to = LocalDate.parse(params.get("date2"), DATE_FORMAT);
+                sendRange(exchange, instance, from, to);
+                return;
+            }
+            int year = Integer.parseInt(params.get("year"));
+            if (!params.containsKey("month")) {
+                sendDays(exchange, instance, LocalDate.of(year, 1, 1), Year.of(year).length());
+                return;
+            }
+            int month = Integer.parseInt(params.get("month"));
+            if (!params.containsKey("day")) {
+                LocalDate first = LocalDate.of(year, month, 1);
+                sendDays(exchange, instance, first, first.lengthOfMonth());
+                return;
+            }
+            sendDays(exchange, instance, LocalDate.of(year, month, Integer.parseInt(params.get("day"))), 1);
+        } catch (RuntimeException e) {
+            // Некорректное или отсутствующее значение параметра
+            sendError(exchange, DayType.ERROR_DATE);
+        }
+    }
+
+    private void isLeap(HttpExchange exchange) throws IOException {
+        try {
+            int year = Integer.parseInt(params(exchange.getRequestURI()).get("year"));
+            send(exchange, 200, Year.isLeap(year) ? "1" : "0");
+        } catch (RuntimeException e) {
+            sendError(exchange, DayType.ERROR_DATE);
+        }
+    }
+
+    /**
+     * Отрезок дней внутри одного года
+     */
+    private void sendDays(HttpExchange exchange, int instance, LocalDate from, int days) throws IOException {
+        YearResponse response = getResponse(instance, from.getYear());
+        if (response == null) {
+            sendError(exchange, notAvailable(from.getYear()));
+            return;
+        }
+        send(exchange, response.body, from.getDayOfYear() - 1, days);
+    }
+
+    /**
+     * Отрезок date1..date2 включительно, возможно из нескольких годов
+     */
+    private void sendRange(HttpExchange exchange, int instance, LocalDate from, LocalDate to) throws IOException {
+        if (to.isBefore(from)) {
+            sendError(exchange, DayType.ERROR_DATE);
+            return;
+        }
+        if (from.getYear() < IsDayOffIndex.MIN_YEAR || to.getYear() > IsDayOffIndex.MAX_YEAR) {
+            sendError(exchange, DayType.NOT_FOUND);
+            return;
+        }
+        if (from.getYear() == to.getYear()) {
+            sendDays(exchange, instance, from, to.getDayOfYear() - from.getDayOfYear() + 1);
+            return;
+        }
+        byte[] body = new byte[(int) (to.toEpochDay() - from.toEpochDay() + 1)];
+        int position = 0;
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            YearResponse response = getResponse(instance, year);
+            if (response == null) {
+                sendError(exchange, notAvailable(year));
+                return;
+            }
+            int start = year == from.getYear() ? from.getDayOfYear() - 1 : 0;
+            int end = year == to.getYear() ? to.getDayOfYear() : response.body.length;
+            System.arraycopy(response.body, start, body, position, end - start);
+            position += end - start;
+        }
+        send(exchange, body, 0, body.length);
+    }
+
+    private static DayType notAvailable(int year) {
+        return year < IsDayOffIndex.MIN_YEAR || year > IsDayOffIndex.MAX_YEAR ? DayType.NOT_FOUND : DayType.SERVER_ERROR;
+    }
+
+    /**
+     * Готовый ответ за год
+     * Пересоздается, только когда IsDayOff вернул другие данные года, например после обновления кэша
+     */
+    @Nullable
+    private YearResponse getResponse(int instance, int year) {
+        if (year < IsDayOffIndex.MIN_YEAR || year > IsDayOffIndex.MAX_YEAR) {
+            return null;
+        }
+        IsDayOffYear data = getInstance(instance).loadYear(year);
+        if (data == null) {
+            return null;
+        }
+        int key = instance << 12 | (year - IsDayOffIndex.MIN_YEAR);
+        YearResponse response = responses.get(key);
+        if (response == null || response.year != data) {
+            response = new YearResponse(data);
+            responses.put(key, response);
+        }
+        return response;
+    }
+
+    private IsDayOff getInstance(int instance) {
+        IsDayOff isDayOff = instances.get(instance);
+        if (isDayOff != null) {
+            return isDayOff;
+        }
+        ReentrantLock lock = instanceLocks[instance];
+        lock.lock();
+        try {
+            isDayOff = instances.get(instance);
+            if (isDayOff == null) {
+                IsDayOffBuilder builder = builders.get().setLocale(LocalesType.values()[instance / FLAGS]);
+                if ((instance & 1) != 0) {
+                    builder.addPreHolidaysDay();
+                }
+                if ((instance & 2) != 0) {
+                    builder.addCovidWorkingDays();
+                }
+                if ((instance & 4) != 0) {
+                    builder.setSixDaysWorkWeek();
+                }
+                isDayOff = builder.build();
+                instances.set(instance, isDayOff);
+            }
+            return isDayOff;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Номер экземпляра по стране и флагам запроса
+     * @return Номер или -1, если страна неизвестна
+     */
+    private static int instanceIndex(Map<String, String> params) {
+        LocalesType locale = LocalesType.fromId(params.getOrDefault("cc", LocalesType.RUSSIA.getId()));
+        if (locale == null) {
+            return -1;
+        }
+        int flags = 0;
+        if ("1".equals(params.get("pre"))) {
+            flags |= 1;
+        }
+        if ("1".equals(params.get("covid"))) {
+            flags |= 2;
+        }
+        if ("1".equals(params.get("sd"))) {
+            flags |= 4;
+        }
+        return locale.ordinal() * FLAGS + flags;
+    }
+
+    private static Map<String, String> params(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Код ошибки с HTTP-статусом, как у isdayoff.ru: 100 - 400, 101 - 404, 199 - 500
+     */
+    private static void sendError(HttpExchange exchange, DayType error) throws IOException {
+        int status = error == DayType.ERROR_DATE ? 400 : error == DayType.NOT_FOUND ? 404 : 500;
+        send(exchange, status, error.getId());
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        send(exchange, status, bytes, 0, bytes.length);
+    }
+
+    private static void send(HttpExchange exchange, byte[] body, int offset, int length) throws IOException {
+        send(exchange, 200, body, offset, length);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body, int offset, int length) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        // Длина ответа известна заранее, поэтому соединение остается открытым для следующих запросов
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body, offset, length);
+        }
+    }
+
+    /**
+     * Коды дней года в виде готового тела ответа
+     */
+    private static final class YearResponse {
+        private final IsDayOffYear year;
+        private final byte[] body;
+
+        YearResponse(IsDayOffYear year) {
+            this.year = year;
+            this.body = year.getDays(0, year.length()).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Запуск сервера
+     * Аргументы: порт, необязательно - папка кэша и адрес сервиса
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: IsDayOffServer <port> [<cacheDir> [<baseUrl>]]");
+            System.exit(1);
+        }
+        // Настройка читается при создании первого HttpServer в JVM, явно заданное значение не меняется
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        String cacheDir = args.length > 1 ? args[1] : "";
+        String baseUrl = args.length > 2 ? args[2] : null;
+        IsDayOffServer server = new IsDayOffServer(() -> {
+            IsDayOffBuilder builder = IsDayOff.Builder()
+                    .setCacheDir(cacheDir)
+                    .setRefreshType(RefreshType.BACKGROUND);
+            return baseUrl != null ? builder.setBaseUrl(baseUrl) : builder;
+        }, new InetSocketAddress(Integer.parseInt(args[0])));
+        System.out.println("IsDayOff server: " + server.getBaseUrl());
+    }
+}
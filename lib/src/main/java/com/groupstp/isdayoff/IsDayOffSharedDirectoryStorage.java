@@ -0,0 +1,140 @@
+package com.groupstp.isdayoff;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Текстовые файлы в папке, общей для нескольких процессов на одном хосте
+ * Загрузка года выполняется под блокировкой файла "IsDayOffCache 2024-RU.txt.lock":
+ * год запрашивает у сервиса один процесс, остальные дожидаются его и читают сохраненный файл
+ * <pre>
+ *     IsDayOff isDayOff = IsDayOff.Builder()
+ *             .setStorage(new IsDayOffSharedDirectoryStorage("/var/cache/isdayoff"))
+ *             .build();
+ * </pre>
+ */
+public class IsDayOffSharedDirectoryStorage extends IsDayOffTextStorage {
+    /**
+     * Блокировка файла принадлежит процессу, поэтому внутри процесса загрузки одного года
+     * дополнительно выполняются по очереди
+     */
+    private static final Map<String, Semaphore> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    @Nullable
+    private final IsDayOffListener listener;
+
+    public IsDayOffSharedDirectoryStorage(String cacheDir) {
+        this(cacheDir, null);
+    }
+
+    /**
+     * @param cacheDir Папка для файлов
+     * @param listener Получатель ошибок блокировки файлов
+     */
+    public IsDayOffSharedDirectoryStorage(String cacheDir, @Nullable IsDayOffListener listener) {
+        super(cacheDir);
+        this.listener = listener;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> exclusive(IsDayOffProps properties, int year, Executor executor,
+                                              Supplier<CompletableFuture<T>> action) {
+        File lockFile = new File(getFile(properties, year).getPath() + ".lock");
+        Semaphore local = LOCAL_LOCKS.computeIfAbsent(lockFile.getAbsolutePath(), key -> new Semaphore(1));
+        return CompletableFuture.supplyAsync(() -> lock(local, lockFile), LockPool.INSTANCE).thenComposeAsync(lock -> {
+            CompletableFuture<T> result;
+            try {
+                result = action.get();
+            } catch (RuntimeException e) {
+                lock.release();
+                throw e;
+            }
+            return result.whenComplete((value, error) -> lock.release());
+        }, executor);
+    }
+
+    private Lock lock(Semaphore local, File lockFile) {
+        local.acquireUninterruptibly();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            return new Lock(local, channel, channel.lock());
+        } catch (IOException e) {
+            // Без блокировки файла год может быть запрошен несколькими процессами, но загрузка не прерывается
+            onError("file lock", e);
+            return new Lock(local, channel, null);
+        }
+    }
+
+    private void onError(String operation, Exception error) {
+        if (listener != null) {
+            listener.onError(operation, error);
+        }
+    }
+
+    /**
+     * Потоки ожидания блокировок
+     * Ожидание блокирует поток, поэтому выполняется не в общем ForkJoinPool и не в пуле загрузок, а в отдельном
+     * ограниченном пуле: лишние ожидания стоят в очереди. Загрузка после получения блокировки выполняется в пуле загрузок
+     */
+    private static final class LockPool {
+        private static final int THREADS = 8;
+        private static final ExecutorService INSTANCE = newPool();
+
+        private static ExecutorService newPool() {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "isdayoff-lock");
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Захваченная блокировка. Может быть освобождена из любого потока
+     */
+    private final class Lock {
+        private final Semaphore local;
+        @Nullable
+        private final FileChannel channel;
+        @Nullable
+        private final FileLock fileLock;
+
+        Lock(Semaphore local, @Nullable FileChannel channel, @Nullable FileLock fileLock) {
+            this.local = local;
+            this.channel = channel;
+            this.fileLock = fileLock;
+        }
+
+        void release() {
+            try {
+                if (fileLock != null) {
+                    fileLock.release();
+                }
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                onError("file unlock", e);
+            } finally {
+                local.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.LocalesType;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Calendar;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Снимок календаря для запуска без сети
+ * Снимок - файл в формате бинарного кэша с годами для любых стран и параметров.
+ * Загружается из classpath или из файла и используется как начальные данные
+ *
+ * Создание снимка из папки кэша:
+ * <pre>
+ *     ./gradlew :lib:isDayOffSnapshot -PcacheDir=/isDayOff/cache -Psnapshot=isdayoff-snapshot.bin
+ * </pre>
+ * Если указать -PfromYear и -PtoYear, недостающие годы для всех стран сначала запрашиваются у сервиса
+ * @see IsDayOffBuilder#setSnapshotResource(String)
+ * @see IsDayOffBuilder#setSnapshotFile(String)
+ */
+public final class IsDayOffSnapshot {
+    private static final Pattern TEXT_CACHE_FILE = Pattern.compile("IsDayOffCache (\\d+)-([A-Z]+)(-pre)?(-covid)?(-sd)?\\.txt");
+
+    private IsDayOffSnapshot() {
+    }
+
+    /**
+     * Загрузить снимок, указанный в параметрах
+     * @param builder Параметры
+     * @return Снимок только для чтения или null, если снимок не указан или его не удалось прочитать
+     */
+    @Nullable
+    static IsDayOffBinaryStore load(IsDayOffBuilder builder) {
+        try {
+            byte[] data;
+            if (builder.getSnapshotFile() != null) {
+                data = Files.readAllBytes(new File(builder.getSnapshotFile()).toPath());
+            } else if (builder.getSnapshotResource() != null) {
+                data = readResource(builder.getSnapshotResource());
+                if (data == null) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+            return IsDayOffBinaryStore.readOnly(ByteBuffer.wrap(data));
+        } catch (IOException e) {
+            if (builder.getListener() != null) {
+                builder.getListener().onError("snapshot load", e);
+            }
+            return null;
+        }
+    }
+
+    @Nullable
+    private static byte[] readResource(String name) throws IOException {
+        String path = name.startsWith("/") ? name.substring(1) : name;
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = IsDayOffSnapshot.class.getClassLoader();
+        }
+        try (InputStream in = loader.getResourceAsStream(path)) {
+            return in != null ? in.readAllBytes() : null;
+        }
+    }
+
+    /**
+     * Создание снимка из папки кэша
+     * Аргументы: папка кэша, файл снимка, необязательно - первый и последний год,
+     * которые нужно запросить у сервиса для всех стран перед созданием снимка
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 4) {
+            System.err.println("Usage: IsDayOffSnapshot <cacheDir> <snapshotFile> [<fromYear> <toYear>]");
+            System.exit(1);
+        }
+        String cacheDir = args[0];
+        File output = new File(args[1]);
+        if (args.length == 4) {
+            fetch(cacheDir, Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        }
+
+        File temp = File.createTempFile("isdayoff-snapshot", ".bin");
+        temp.deleteOnExit();
+        IsDayOffBinaryStore snapshot = IsDayOffBinaryStore.open(temp);
+        int years = copyTextCache(cacheDir, snapshot) + copyBinaryCache(cacheDir, snapshot);
+        snapshot.writeTo(output);
+        System.out.println("Snapshot " + output + ": " + years + " years");
+    }
+
+    /**
+     * Запросить годы для всех стран с параметрами по умолчанию и сохранить их в папку кэша
+     */
+    private static void fetch(String cacheDir, int fromYear, int toYear) {
+        Calendar calendar = Calendar.getInstance();
+        for (LocalesType locale : LocalesType.values()) {
+            IsDayOff isDayOff = IsDayOff.Builder()
+                    .setLocale(locale)
+                    .setCacheDir(cacheDir)
+                    .build();
+            for (int year = fromYear; year <= toYear; year++) {
+                calendar.set(year, Calendar.JANUARY, 1);
+                if (isDayOff.daysTypeByYear(calendar.getTime()) == null) {
+                    System.err.println("Can not fetch " + locale + " " + year);
+                }
+            }
+        }
+    }
+
+    private static int copyTextCache(String cacheDir, IsDayOffBinaryStore snapshot) {
+        File[] files = new File(cacheDir.isEmpty() ? "." : cacheDir).listFiles();
+        if (files == null) {
+            return 0;
+        }
+        IsDayOffTextStorage textStorage = new IsDayOffTextStorage(cacheDir);
+        int count = 0;
+        for (File file : files) {
+            Matcher matcher = TEXT_CACHE_FILE.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            LocalesType locale;
+            try {
+                locale = LocalesType.valueOf(matcher.group(2));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            IsDayOffBuilder builder = IsDayOff.Builder().setLocale(locale);
+            if (matcher.group(3) != null) {
+                builder.addPreHolidaysDay();
+            }
+            if (matcher.group(4) != null) {
+                builder.addCovidWorkingDays();
+            }
+            if (matcher.group(5) != null) {
+                builder.setSixDaysWorkWeek();
+            }
+            IsDayOffProps properties = new IsDayOffProps(builder);
+            IsDayOffYear year = textStorage.loadYear(properties, Integer.parseInt(matcher.group(1)));
+            if (year != null) {
+                snapshot.storeYear(properties, year);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int copyBinaryCache(String cacheDir, IsDayOffBinaryStore snapshot) throws IOException {
+        File file = new File(cacheDir.isEmpty() ? "." : cacheDir, "IsDayOffCache.bin");
+        if (!file.exists()) {
+            return 0;
+        }
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(file);
+        if (store.isCreated()) {
+            return 0;
+        }
+        int[] count = new int[1];
+        store.forEachYear((properties, year) -> {
+            snapshot.storeYear(properties, year);
+            count[0]++;
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,65 @@
+package com.groupstp.isdayoff;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Хранилище годов календаря
+ * Готовые реализации - текстовые файлы ({@link IsDayOffTextStorage}), бинарный файл ({@link IsDayOffBinaryStore})
+ * и общая для нескольких процессов папка ({@link IsDayOffSharedDirectoryStorage}).
+ * Свое хранилище, например распределенное, подключается через {@link IsDayOffBuilder#setStorage(IsDayOffStorage)}.
+ * Реализация должна быть потокобезопасной
+ */
+public interface IsDayOffStorage {
+    /**
+     * Прочитать год
+     * @param properties Параметры
+     * @param year Год
+     * @return Данные года или null, если года нет в хранилище или данные повреждены
+     */
+    @Nullable
+    IsDayOffYear loadYear(IsDayOffProps properties, int year);
+
+    /**
+     * Сохранить год. Существующие данные для тех же параметров и года заменяются
+     * @param properties Параметры
+     * @param year Данные года
+     * @throws java.io.UncheckedIOException если записать не удалось. Ошибка передается в {@link IsDayOffListener#onError},
+     * год остается доступен из памяти
+     */
+    void storeYear(IsDayOffProps properties, IsDayOffYear year);
+
+    /**
+     * Годы, сохраненные для набора параметров
+     * @param properties Параметры
+     * @return Годы по возрастанию
+     */
+    int[] listYears(IsDayOffProps properties);
+
+    /**
+     * Время получения данных года от сервиса
+     * @param properties Параметры
+     * @param year Год
+     * @return Время в миллисекундах или -1, если года нет в хранилище
+     */
+    default long getFetchedAt(IsDayOffProps properties, int year) {
+        IsDayOffYear loaded = loadYear(properties, year);
+        return loaded != null ? loaded.getFetchedAt() : -1;
+    }
+
+    /**
+     * Выполнить загрузку года так, чтобы тот же год не загружали одновременно другие процессы
+     * По умолчанию загрузка выполняется сразу, без блокировки
+     * @param properties Параметры
+     * @param year Год
+     * @param executor Пул для загрузки после получения блокировки. Реализация не должна блокировать его потоки ожиданием
+     * @param action Загрузка: чтение из хранилища и, если нужно, запрос к сервису с сохранением результата
+     * @return Результат загрузки
+     */
+    default <T> CompletableFuture<T> exclusive(IsDayOffProps properties, int year, Executor executor,
+                                               Supplier<CompletableFuture<T>> action) {
+        return action.get();
+    }
+}
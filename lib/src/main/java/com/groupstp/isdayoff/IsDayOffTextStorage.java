@@ -0,0 +1,148 @@
+package com.groupstp.isdayoff;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Хранилище в текстовых файлах, по файлу на год
+ * Файл "IsDayOffCache 2024-RU.txt": первая строка - дата получения данных (yyyyMMdd), вторая - коды дней
+ */
+public class IsDayOffTextStorage implements IsDayOffStorage {
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final File dir;
+
+    /**
+     * @param cacheDir Папка для файлов. Пустая строка - текущая папка
+     */
+    public IsDayOffTextStorage(String cacheDir) {
+        this.dir = new File(cacheDir.isEmpty() ? "." : cacheDir);
+    }
+
+    @Nullable
+    @Override
+    public IsDayOffYear loadYear(IsDayOffProps properties, int year) {
+        File file = getFile(properties, year);
+        if (!file.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            long fetchedAt = parseFileDate(reader.readLine());
+            return IsDayOffYear.parse(year, reader.readLine(), fetchedAt);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void storeYear(IsDayOffProps properties, IsDayOffYear year) {
+        String fileDate = FILE_DATE.format(LocalDate.ofInstant(Instant.ofEpochMilli(year.getFetchedAt()), ZoneId.systemDefault()));
+        writeAtomically(getFile(properties, year.getYear()), fileDate + "\r\n" + year.getDays(0, year.length()));
+    }
+
+    @Override
+    public int[] listYears(IsDayOffProps properties) {
+        Pattern pattern = Pattern.compile("IsDayOffCache (\\d+)-" + Pattern.quote(getFileKey(properties)) + "\\.txt");
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return new int[0];
+        }
+        int[] years = new int[files.length];
+        int count = 0;
+        for (File file : files) {
+            Matcher matcher = pattern.matcher(file.getName());
+            if (matcher.matches()) {
+                years[count++] = Integer.parseInt(matcher.group(1));
+            }
+        }
+        years = Arrays.copyOf(years, count);
+        Arrays.sort(years);
+        return years;
+    }
+
+    /**
+     * Читается только первая строка файла
+     */
+    @Override
+    public long getFetchedAt(IsDayOffProps properties, int year) {
+        File file = getFile(properties, year);
+        if (!file.exists()) {
+            return -1;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return parseFileDate(reader.readLine());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static long parseFileDate(String line) {
+        return LocalDate.parse(line, FILE_DATE).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Файл года
+     * @param properties Параметры
+     * @param year Год
+     */
+    protected File getFile(IsDayOffProps properties, int year) {
+        return new File(dir, "IsDayOffCache " + year + "-" + getFileKey(properties) + ".txt");
+    }
+
+    /**
+     * Часть имени файла с параметрами: страна и флаги, если они указаны
+     * Файлы с параметрами по умолчанию называются так же, как в первых версиях
+     */
+    static String getFileKey(IsDayOffProps properties) {
+        StringBuilder key = new StringBuilder(properties.getLocale().name());
+        if (properties.getPreHolidaysDay() == 1) {
+            key.append("-pre");
+        }
+        if (properties.getCovidWorkingDays() == 1) {
+            key.append("-covid");
+        }
+        if (properties.getSixDaysWorkWeek() == 1) {
+            key.append("-sd");
+        }
+        return key.toString();
+    }
+
+    /**
+     * Запись файла через временный файл и переименование
+     * Читатели видят либо старое, либо новое содержимое файла целиком
+     */
+    private static void writeAtomically(File file, String content) {
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+            try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile)) {
+                fileOutputStream.write(content.getBytes());
+            }
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+}
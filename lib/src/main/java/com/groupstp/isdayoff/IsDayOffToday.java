@@ -0,0 +1,193 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Заранее вычисленные типы сегодняшнего и завтрашнего дня для часовых поясов
+ * Значение для пояса заменяется целиком задачей в местную полночь, поэтому запрос - чтение volatile-ссылки
+ * и проверка, что сутки не закончились и данные года не обновились
+ */
+final class IsDayOffToday {
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final IntFunction<IsDayOffYear> loadYear;
+    private final IntFunction<IsDayOffYear> currentYear;
+    private final Executor executor;
+    @Nullable
+    private final IsDayOffListener listener;
+    private final LongSupplier clock;
+    private final Map<ZoneId, Zone> zones = new ConcurrentHashMap<>();
+
+    /**
+     * @param loadYear Загрузка года: из памяти, кэша или у сервиса
+     * @param currentYear Год в памяти без загрузки
+     * @param executor Пул для загрузки годов при пересчете в полночь
+     * @param listener Получатель ошибок пересчета
+     */
+    IsDayOffToday(IntFunction<IsDayOffYear> loadYear, IntFunction<IsDayOffYear> currentYear, Executor executor,
+                  @Nullable IsDayOffListener listener) {
+        this(loadYear, currentYear, executor, listener, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock Текущее время в миллисекундах, в тестах подменяется
+     */
+    IsDayOffToday(IntFunction<IsDayOffYear> loadYear, IntFunction<IsDayOffYear> currentYear, Executor executor,
+                  @Nullable IsDayOffListener listener, LongSupplier clock) {
+        this.loadYear = loadYear;
+        this.currentYear = currentYear;
+        this.executor = executor;
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    DayType today(ZoneId zoneId) {
+        return get(zoneId).today;
+    }
+
+    DayType tomorrow(ZoneId zoneId) {
+        return get(zoneId).tomorrow;
+    }
+
+    private Days get(ZoneId zoneId) {
+        Zone zone = zones.get(zoneId);
+        if (zone == null) {
+            zone = zones.computeIfAbsent(zoneId, Zone::new);
+        }
+        Days days = zone.days;
+        if (days != null && days.isValid()) {
+            return days;
+        }
+        return zone.update();
+    }
+
+    /**
+     * Запланировать пересчет пояса
+     * Задача держит пояс через слабую ссылку: когда экземпляр IsDayOff больше не используется,
+     * пояс собирается сборщиком мусора, а задача не перепланируется
+     */
+    private static void schedule(WeakReference<Zone> zone, long atMillis, LongSupplier clock) {
+        long delay = Math.max(0, atMillis - clock.getAsLong());
+        Scheduler.INSTANCE.schedule(() -> {
+            Zone current = zone.get();
+            if (current != null) {
+                current.rollover(zone);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Значение для одного пояса и его замена в полночь
+     */
+    private final class Zone {
+        private final ZoneId zoneId;
+        private volatile Days days;
+        private boolean scheduled;
+
+        Zone(ZoneId zoneId) {
+            this.zoneId = zoneId;
+        }
+
+        synchronized Days update() {
+            Days current = days;
+            if (current != null && current.isValid()) {
+                return current;
+            }
+            current = new Days(Instant.ofEpochMilli(clock.getAsLong()).atZone(zoneId).toLocalDate(), zoneId);
+            days = current;
+            if (!scheduled) {
+                scheduled = true;
+                schedule(new WeakReference<>(this), current.endMillis, clock);
+            }
+            return current;
+        }
+
+        /**
+         * Пересчет в местную полночь. Годы загружаются в пуле executor, а не в потоке планировщика.
+         * Если задача сработала раньше, значение еще действительно и задача перепланируется на оставшееся время
+         */
+        void rollover(WeakReference<Zone> self) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        schedule(self, update().endMillis, clock);
+                    } catch (RuntimeException e) {
+                        retry(self, e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                retry(self, e);
+            }
+        }
+
+        private void retry(WeakReference<Zone> self, RuntimeException error) {
+            if (listener != null) {
+                listener.onError("today rollover", error);
+            }
+            schedule(self, clock.getAsLong() + RETRY_DELAY_MILLIS, clock);
+        }
+    }
+
+    /**
+     * Неизменяемые типы дней на одну дату
+     */
+    private final class Days {
+        private final DayType today;
+        private final DayType tomorrow;
+        @Nullable
+        private final IsDayOffYear todayYear;
+        @Nullable
+        private final IsDayOffYear tomorrowYear;
+        /**
+         * Начало следующих суток в поясе, миллисекунды
+         */
+        private final long endMillis;
+
+        Days(LocalDate date, ZoneId zoneId) {
+            LocalDate next = date.plusDays(1);
+            todayYear = loadYear.apply(date.getYear());
+            tomorrowYear = next.getYear() == date.getYear() ? todayYear : loadYear.apply(next.getYear());
+            today = todayYear != null ? todayYear.getDayType(date.getDayOfYear() - 1) : DayType.SERVER_ERROR;
+            tomorrow = tomorrowYear != null ? tomorrowYear.getDayType(next.getDayOfYear() - 1) : DayType.SERVER_ERROR;
+            endMillis = next.atStartOfDay(zoneId).toInstant().toEpochMilli();
+        }
+
+        /**
+         * Сутки не закончились, оба года получены и не заменены новыми данными
+         * Ошибки не запоминаются: следующий запрос снова попробует загрузить год.
+         * Время проверяется, чтобы после полуночи не вернуть вчерашние значения, если задача пересчета задержалась
+         */
+        boolean isValid() {
+            return clock.getAsLong() < endMillis
+                    && todayYear != null && tomorrowYear != null
+                    && currentYear.apply(todayYear.getYear()) == todayYear
+                    && currentYear.apply(tomorrowYear.getYear()) == tomorrowYear;
+        }
+    }
+
+    /**
+     * Общий для всех экземпляров поток пересчета, создается при первом использовании
+     * Только планирует задачи, загрузка годов в нем не выполняется
+     */
+    private static final class Scheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "isdayoff-today");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
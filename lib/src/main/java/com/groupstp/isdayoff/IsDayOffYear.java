@@ -0,0 +1,274 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+
+import javax.annotation.Nullable;
+import java.time.Year;
+
+/**
+ * Данные одного года в упакованном виде
+ * Каждый день хранится в 2 битах, весь год занимает 92 байта
+ * Экземпляр неизменяемый и может свободно использоваться из разных потоков
+ */
+public final class IsDayOffYear {
+    /**
+     * Типы дней в порядке их 2-битных кодов
+     */
+    private static final DayType[] TYPES = {
+            DayType.WORKING_DAY,
+            DayType.NOT_WORKING_DAY,
+            DayType.SHORT_DAY,
+            DayType.WORKING_DAY_COVID
+    };
+
+    private final int year;
+    private final int length;
+    private final byte[] packed;
+    private final long fetchedAt;
+    /**
+     * Кол-во рабочих дней до каждого дня года(не включая его)
+     * workingPrefix[length] - кол-во рабочих дней за весь год
+     */
+    private final int[] workingPrefix;
+    /**
+     * Для каждого дня - первый день следующего отрезка дней другого типа
+     */
+    private final short[] runEnd;
+    /**
+     * Для каждого дня - первый день отрезка дней того же типа, в который он входит
+     */
+    private final short[] runStart;
+
+    private IsDayOffYear(int year, int length, byte[] packed, long fetchedAt) {
+        this.year = year;
+        this.length = length;
+        this.packed = packed;
+        this.fetchedAt = fetchedAt;
+        this.workingPrefix = new int[length + 1];
+        for (int i = 0; i < length; i++) {
+            workingPrefix[i + 1] = workingPrefix[i] + (getCode(i) != 1 ? 1 : 0);
+        }
+        this.runStart = new short[length];
+        for (int i = 1; i < length; i++) {
+            runStart[i] = getCode(i) == getCode(i - 1) ? runStart[i - 1] : (short) i;
+        }
+        this.runEnd = new short[length];
+        runEnd[length - 1] = (short) length;
+        for (int i = length - 2; i >= 0; i--) {
+            runEnd[i] = getCode(i) == getCode(i + 1) ? runEnd[i + 1] : (short) (i + 1);
+        }
+    }
+
+    /**
+     * Разбор строки с типами дней за год
+     * @param year Год
+     * @param data Строка из id типов дней, по символу на день
+     * @param fetchedAt Время получения данных в миллисекундах
+     * @return Упакованный год или null, если строка не является корректными данными за год
+     */
+    @Nullable
+    public static IsDayOffYear parse(int year, @Nullable String data, long fetchedAt) {
+        int length = Year.isLeap(year) ? 366 : 365;
+        if (data == null || data.length() != length) {
+            return null;
+        }
+        byte[] packed = new byte[packedSize(length)];
+        for (int i = 0; i < length; i++) {
+            int code = toCode(data.charAt(i));
+            if (code < 0) {
+                return null;
+            }
+            packed[i >> 2] |= code << ((i & 3) << 1);
+        }
+        return new IsDayOffYear(year, length, packed, fetchedAt);
+    }
+
+    /**
+     * Создание года из уже упакованных данных
+     * @param year Год
+     * @param packed Упакованные коды дней, по 2 бита на день. Массив не копируется
+     * @param fetchedAt Время получения данных в миллисекундах
+     */
+    static IsDayOffYear fromPacked(int year, byte[] packed, long fetchedAt) {
+        int length = Year.isLeap(year) ? 366 : 365;
+        return new IsDayOffYear(year, length, packed, fetchedAt);
+    }
+
+    /**
+     * Размер упакованного года в байтах
+     */
+    static int packedSize(int length) {
+        return (length + 3) / 4;
+    }
+
+    /**
+     * Год, в который попадает день
+     * @param epochDay Номер дня от 1970-01-01
+     */
+    static int yearOfEpochDay(long epochDay) {
+        long days = epochDay + 719468;
+        long era = (days >= 0 ? days : days - 146096) / 146097;
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        return (int) (yearOfEra + era * 400 + (monthIndex >= 10 ? 1 : 0));
+    }
+
+    /**
+     * Номер 1 января года от 1970-01-01
+     * @param year Год
+     */
+    static long firstEpochDay(int year) {
+        long y = year - 1;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + 306;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int toCode(char id) {
+        switch (id) {
+            case '0': return 0;
+            case '1': return 1;
+            case '2': return 2;
+            case '4': return 3;
+            default: return -1;
+        }
+    }
+
+    /**
+     * 2-битный код дня
+     * @param dayOfYear Номер дня в году, начиная с 0
+     */
+    int getCode(int dayOfYear) {
+        return (packed[dayOfYear >> 2] >> ((dayOfYear & 3) << 1)) & 3;
+    }
+
+    /**
+     * Упакованные коды дней. Массив не копируется и не должен изменяться
+     */
+    byte[] getPacked() {
+        return packed;
+    }
+
+    /**
+     * 2-битный код типа дня
+     * @return Код или -1, если тип не является типом дня
+     */
+    static int codeOf(DayType type) {
+        for (int code = 0; code < TYPES.length; code++) {
+            if (TYPES[code] == type) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Тип дня по 2-битному коду
+     */
+    static DayType typeOf(int code) {
+        return TYPES[code];
+    }
+
+    /**
+     * Тип дня
+     * @param dayOfYear Номер дня в году, начиная с 0
+     * @return Тип дня
+     * @see com.groupstp.isdayoff.enums.DayType
+     */
+    public DayType getDayType(int dayOfYear) {
+        return TYPES[getCode(dayOfYear)];
+    }
+
+    /**
+     * Кол-во рабочих дней на отрезке
+     * Рабочими считаются все дни, для которых DayType.isWorkingDay() возвращает true
+     * @param from Первый день отрезка, начиная с 0
+     * @param to День, следующий за последним днем отрезка
+     * @return Кол-во рабочих дней
+     */
+    public int countWorkingDays(int from, int to) {
+        return workingPrefix[to] - workingPrefix[from];
+    }
+
+    /**
+     * Кол-во рабочих дней за год
+     */
+    public int getWorkingDays() {
+        return workingPrefix[length];
+    }
+
+    /**
+     * Найти рабочий день по его порядковому номеру в году
+     * @param number Номер рабочего дня в году, начиная с 1
+     * @return Номер дня в году, начиная с 0, или -1, если в году меньше рабочих дней
+     */
+    public int indexOfWorkingDay(int number) {
+        if (number <= 0 || number > workingPrefix[length]) {
+            return -1;
+        }
+        int low = 0;
+        int high = length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (workingPrefix[mid + 1] >= number) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Конец отрезка подряд идущих дней одного типа
+     * @param dayOfYear Номер дня в году, начиная с 0
+     * @return Номер первого дня после отрезка, в который входит dayOfYear. Равен length(), если отрезок доходит до конца года
+     */
+    public int getRunEnd(int dayOfYear) {
+        return runEnd[dayOfYear];
+    }
+
+    /**
+     * Начало отрезка подряд идущих дней одного типа
+     * @param dayOfYear Номер дня в году, начиная с 0
+     * @return Номер первого дня отрезка, в который входит dayOfYear
+     */
+    public int getRunStart(int dayOfYear) {
+        return runStart[dayOfYear];
+    }
+
+    /**
+     * Строка с id типов дней в формате ответа сервиса
+     * @param from Первый день отрезка, начиная с 0
+     * @param to День, следующий за последним днем отрезка
+     * @return Строка с id типа для каждого дня отрезка
+     */
+    public String getDays(int from, int to) {
+        StringBuilder result = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            result.append(TYPES[getCode(i)].getId());
+        }
+        return result.toString();
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * Кол-во дней в году
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Время получения данных в миллисекундах
+     */
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+}
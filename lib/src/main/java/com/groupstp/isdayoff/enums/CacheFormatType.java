@@ -0,0 +1,20 @@
+package com.groupstp.isdayoff.enums;
+
+/**
+ * Формат файлов кэша
+ */
+public enum CacheFormatType {
+    /**
+     * Текстовый файл на каждый год и страну
+     */
+    TEXT,
+    /**
+     * Один бинарный файл на все годы, страны и параметры, отображаемый в память
+     */
+    BINARY,
+    /**
+     * Без файлов: годы загружаются целиком и хранятся только в памяти.
+     * Подходит для контейнеров с файловой системой только для чтения
+     */
+    MEMORY
+}
@@ -41,16 +41,35 @@ public enum DayType {
      */
     SERVER_ERROR("199");
 
+    private static final DayType[] VALUES = values();
+    private static final DayType[] BY_CODE = new DayType[256];
+
+    static {
+        for (DayType value : VALUES) {
+            BY_CODE[value.code & 0xFF] = value;
+        }
+    }
+
     private String id;
+    private final byte code;
 
     DayType(String id) {
         this.id = id;
+        this.code = (byte) Integer.parseInt(id);
     }
 
     public String getId() {
         return id;
     }
 
+    /**
+     * Числовой код типа дня в одном байте
+     * Коды ошибок 100, 101, 199 хранятся как беззнаковый байт
+     */
+    public byte getCode() {
+        return code;
+    }
+
     @Nullable
     public Boolean isWorkingDay() {
         if (this.equals(WORKING_DAY) || this.equals(WORKING_DAY_COVID) || this.equals(SHORT_DAY)) {
@@ -63,11 +82,38 @@ public enum DayType {
 
     @Nullable
     public static DayType fromId(String id) {
-        for (DayType value : DayType.values()) {
+        if (id != null && id.length() == 1) {
+            return fromCode(id.charAt(0));
+        }
+        for (DayType value : VALUES) {
             if (value.getId().equals(id)) {
                 return value;
             }
         }
         return null;
     }
+
+    /**
+     * Тип дня по символу из ответа сервиса, без выделения памяти
+     * @param id Символ '0', '1', '2' или '4'
+     * @return Тип дня или null, если символ не является типом дня
+     */
+    @Nullable
+    public static DayType fromCode(char id) {
+        if (id < '0' || id > '9') {
+            return null;
+        }
+        return BY_CODE[id - '0'];
+    }
+
+    /**
+     * Тип дня по числовому коду
+     * @param code Код
+     * @return Тип дня или null, если такого кода нет
+     * @see #getCode()
+     */
+    @Nullable
+    public static DayType fromByte(byte code) {
+        return BY_CODE[code & 0xFF];
+    }
 }
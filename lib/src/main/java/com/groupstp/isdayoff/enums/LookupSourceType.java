@@ -0,0 +1,19 @@
+package com.groupstp.isdayoff.enums;
+
+/**
+ * Источник данных года
+ */
+public enum LookupSourceType {
+    /**
+     * Загруженные в память годы
+     */
+    MEMORY,
+    /**
+     * Файл кэша
+     */
+    DISK,
+    /**
+     * Запрос к сервису
+     */
+    NETWORK
+}
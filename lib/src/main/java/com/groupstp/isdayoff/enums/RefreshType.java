@@ -0,0 +1,16 @@
+package com.groupstp.isdayoff.enums;
+
+/**
+ * Режим обновления устаревшего кэша
+ */
+public enum RefreshType {
+    /**
+     * Устаревший год запрашивается у сервиса при первом обращении, вызывающий поток ждет ответа
+     */
+    BLOCKING,
+    /**
+     * Устаревший год продолжает использоваться, а обновляется в фоне.
+     * Кроме того, год обновляется заранее, незадолго до истечения срока хранения
+     */
+    BACKGROUND
+}
@@ -0,0 +1,74 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DayTypeSeriesTest {
+    private static final LocalDate START = LocalDate.of(2021, 12, 30);
+
+    private static Date date(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    void parsesResponseLazily() {
+        DayTypeSeries series = DayTypeSeries.parse("0124", START.toEpochDay());
+        assertEquals(4, series.size());
+        assertEquals(DayType.WORKING_DAY, series.getDayType(0));
+        assertEquals(DayType.NOT_WORKING_DAY, series.getDayType(1));
+        assertEquals(DayType.SHORT_DAY, series.getDayType(2));
+        assertEquals(DayType.WORKING_DAY_COVID, series.getDayType(3));
+        assertEquals(LocalDate.of(2022, 1, 2), series.getDate(3));
+        assertEquals(3, series.countWorkingDays());
+        assertThrows(IndexOutOfBoundsException.class, () -> series.getDayType(4));
+        assertNull(DayTypeSeries.parse("01x", START.toEpochDay()));
+    }
+
+    @Test
+    void itemsKeepTimeOfDayOfTheRequest() {
+        LocalTime time = LocalTime.of(15, 45, 30, 123_000_000);
+        DayTypeSeries series = DayTypeSeries.parse("0101", START.toEpochDay()).atTime(time);
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(date(START.plusDays(i).atTime(time)), series.get(i).getDate());
+        }
+        DayTypeSeries joined = DayTypeSeries.concat(Arrays.asList(series, DayTypeSeries.parse("1", START.plusDays(4).toEpochDay())));
+        assertEquals(date(START.plusDays(4).atTime(time)), joined.get(4).getDate());
+        assertEquals(date(START.atStartOfDay()), DayTypeSeries.parse("0", START.toEpochDay()).get(0).getDate());
+    }
+
+    @Test
+    void followsListContract() {
+        DayTypeSeries series = DayTypeSeries.parse("0101", START.toEpochDay());
+        assertEquals(series, series);
+        assertEquals(2, series.subList(1, 3).size());
+        assertEquals(DayType.NOT_WORKING_DAY, series.subList(1, 3).get(0).getDayType());
+        assertEquals(4, series.stream().count());
+        assertEquals(2L, series.parallelStream().filter(day -> day.getDayType() == DayType.WORKING_DAY).count());
+    }
+
+    @Test
+    void equalsComparesDatesAndTypes() {
+        DayTypeSeries series = DayTypeSeries.parse("0101", START.toEpochDay());
+        DayTypeSeries same = DayTypeSeries.parse("0101", START.toEpochDay());
+        assertEquals(series, same);
+        assertEquals(series.hashCode(), same.hashCode());
+        assertEquals(new ArrayList<>(series), series);
+        assertEquals(series, new ArrayList<>(series));
+        assertNotEquals(series, DayTypeSeries.parse("0100", START.toEpochDay()));
+        assertNotEquals(series, DayTypeSeries.parse("0101", START.plusDays(1).toEpochDay()));
+        assertNotEquals(series, same.atTime(LocalTime.NOON));
+    }
+}
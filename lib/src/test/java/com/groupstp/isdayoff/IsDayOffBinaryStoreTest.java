@@ -0,0 +1,256 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.CacheFormatType;
+import com.groupstp.isdayoff.enums.DayType;
+import com.groupstp.isdayoff.enums.LocalesType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffBinaryStoreTest {
+    @TempDir
+    Path dir;
+
+    private static IsDayOffProps props(LocalesType locale) {
+        return new IsDayOffProps(new IsDayOffBuilder().setLocale(locale));
+    }
+
+    private static IsDayOffYear year(int year, char holiday) {
+        StringBuilder days = new StringBuilder();
+        for (LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+            days.append(date.getDayOfYear() == 1 ? holiday : date.getDayOfWeek().getValue() >= 6 ? '1' : '0');
+        }
+        return IsDayOffYear.parse(year, days.toString(), 1000);
+    }
+
+    private IsDayOffCache cache(LocalesType locale) {
+        return new IsDayOffCache(new IsDayOffBuilder()
+                .setLocale(locale)
+                .setCacheDir(dir.toString())
+                .setCacheFormat(CacheFormatType.BINARY));
+    }
+
+    private File binaryFile() {
+        return dir.resolve("IsDayOffCache.bin").toFile();
+    }
+
+    /**
+     * Кол-во записей в файле: writeTo сохраняет только занятую часть
+     */
+    private int records(IsDayOffBinaryStore store) throws IOException {
+        File copy = dir.resolve("copy.bin").toFile();
+        store.writeTo(copy);
+        return (int) ((copy.length() - IsDayOffBinaryStore.HEADER_SIZE) / IsDayOffBinaryStore.RECORD_SIZE);
+    }
+
+    @Test
+    void reopenReadsStoredYears() throws IOException {
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(store);
+        store.storeYear(props(LocalesType.RUSSIA), year(2020, '1'));
+        store.storeYear(props(LocalesType.RUSSIA), year(2021, '1'));
+        store.storeYear(props(LocalesType.KAZAKHSTAN), year(2021, '0'));
+        store.close();
+
+        IsDayOffBinaryStore reopened = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(reopened);
+        assertArrayEquals(new int[]{2020, 2021}, reopened.listYears(props(LocalesType.RUSSIA)));
+        assertArrayEquals(new int[]{2021}, reopened.listYears(props(LocalesType.KAZAKHSTAN)));
+        IsDayOffYear loaded = reopened.loadYear(props(LocalesType.RUSSIA), 2021);
+        assertNotNull(loaded);
+        assertEquals(year(2021, '1').getDays(0, 365), loaded.getDays(0, loaded.length()));
+        assertEquals(1000, loaded.getFetchedAt());
+        assertEquals(DayType.WORKING_DAY, reopened.getDayType(props(LocalesType.KAZAKHSTAN), 2021, 0));
+        reopened.close();
+    }
+
+    @Test
+    void corruptedRecordFailsChecksum() throws IOException {
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(store);
+        store.storeYear(props(LocalesType.RUSSIA), year(2021, '1'));
+        store.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(binaryFile(), "rw")) {
+            long dataOffset = IsDayOffBinaryStore.HEADER_SIZE + 24;
+            file.seek(dataOffset);
+            int value = file.read();
+            file.seek(dataOffset);
+            file.write(value ^ 0xFF);
+        }
+
+        IsDayOffBinaryStore reopened = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(reopened);
+        assertNull(reopened.loadYear(props(LocalesType.RUSSIA), 2021));
+        reopened.close();
+    }
+
+    @Test
+    void updatesReuseRecordsOfTheKey() throws IOException {
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(store);
+        for (int i = 0; i < 10; i++) {
+            store.storeYear(props(LocalesType.RUSSIA), year(2021, i % 2 == 0 ? '0' : '1'));
+            store.storeYear(props(LocalesType.RUSSIA), year(2022, '1'));
+        }
+        assertEquals(4, records(store));
+        assertEquals(DayType.NOT_WORKING_DAY, store.getDayType(props(LocalesType.RUSSIA), 2021, 0));
+        store.close();
+
+        IsDayOffBinaryStore reopened = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(reopened);
+        assertEquals(DayType.NOT_WORKING_DAY, reopened.getDayType(props(LocalesType.RUSSIA), 2021, 0));
+        reopened.storeYear(props(LocalesType.RUSSIA), year(2021, '0'));
+        assertEquals(4, records(reopened));
+        assertEquals(DayType.WORKING_DAY, reopened.getDayType(props(LocalesType.RUSSIA), 2021, 0));
+        reopened.close();
+    }
+
+    @Test
+    void corruptedNewestRecordFallsBackToPrevious() throws IOException {
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(store);
+        store.storeYear(props(LocalesType.RUSSIA), year(2021, '1'));
+        store.storeYear(props(LocalesType.RUSSIA), year(2021, '0'));
+        store.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(binaryFile(), "rw")) {
+            long dataOffset = IsDayOffBinaryStore.HEADER_SIZE + IsDayOffBinaryStore.RECORD_SIZE + 24;
+            file.seek(dataOffset);
+            int value = file.read();
+            file.seek(dataOffset);
+            file.write(value ^ 0xFF);
+        }
+
+        IsDayOffBinaryStore reopened = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(reopened);
+        IsDayOffYear loaded = reopened.loadYear(props(LocalesType.RUSSIA), 2021);
+        assertNotNull(loaded);
+        assertEquals(DayType.NOT_WORKING_DAY, loaded.getDayType(0));
+        reopened.close();
+    }
+
+    @Test
+    void importsTextCacheAfterRestartWithAnotherLocale() throws IOException {
+        IsDayOffTextStorage text = new IsDayOffTextStorage(dir.toString());
+        text.storeYear(props(LocalesType.RUSSIA), year(2021, '1'));
+        text.storeYear(props(LocalesType.KAZAKHSTAN), year(2021, '0'));
+
+        assertNotNull(cache(LocalesType.RUSSIA).readYear(2021));
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(store);
+        assertEquals(1, records(store));
+        store.close();
+
+        IsDayOffYear imported = cache(LocalesType.KAZAKHSTAN).readYear(2021);
+        assertNotNull(imported);
+        assertEquals(DayType.WORKING_DAY, imported.getDayType(0));
+        cache(LocalesType.KAZAKHSTAN);
+        cache(LocalesType.RUSSIA);
+        IsDayOffBinaryStore reopened = IsDayOffBinaryStore.open(binaryFile());
+        assertNotNull(reopened);
+        assertEquals(2, records(reopened));
+        reopened.close();
+    }
+
+    private void writeCount(int count) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(binaryFile(), "rw")) {
+            file.seek(8);
+            file.writeInt(count);
+        }
+    }
+
+    @Test
+    void invalidRecordCountFailsOpen() throws IOException {
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(binaryFile());
+        store.storeYear(props(LocalesType.RUSSIA), year(2021, '1'));
+        store.close();
+
+        writeCount(-1);
+        assertThrows(IOException.class, () -> IsDayOffBinaryStore.open(binaryFile()));
+        writeCount(Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> IsDayOffBinaryStore.open(binaryFile()));
+
+        IsDayOffCache cache = cache(LocalesType.RUSSIA);
+        cache.writeYear(year(2022, '1'));
+        assertNotNull(cache.readYear(2022));
+    }
+
+    @Test
+    void truncatedFileFailsOpen() throws IOException {
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(binaryFile());
+        store.storeYear(props(LocalesType.RUSSIA), year(2021, '1'));
+        store.storeYear(props(LocalesType.RUSSIA), year(2022, '1'));
+        store.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(binaryFile(), "rw")) {
+            file.setLength(IsDayOffBinaryStore.HEADER_SIZE + IsDayOffBinaryStore.RECORD_SIZE + 10);
+        }
+        assertThrows(IOException.class, () -> IsDayOffBinaryStore.open(binaryFile()));
+    }
+
+    /**
+     * Два процесса одновременно несколько раз записывают одни и те же годы
+     * Каждый процесс должен видеть записи другого: для года используется не больше двух записей,
+     * а последней остается версия из последнего прохода
+     */
+    @Test
+    void processesShareFile() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String start = String.valueOf(System.currentTimeMillis() + 2000);
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    IsDayOffBinaryStoreTest.class.getName(), binaryFile().toString(), start)
+                    .inheritIO()
+                    .start());
+        }
+        for (Process process : processes) {
+            assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+            assertEquals(0, process.exitValue());
+        }
+
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(binaryFile());
+        assertEquals(WRITER_YEARS, store.listYears(props(LocalesType.RUSSIA)).length);
+        for (int year = WRITER_FIRST_YEAR; year < WRITER_FIRST_YEAR + WRITER_YEARS; year++) {
+            IsDayOffYear loaded = store.loadYear(props(LocalesType.RUSSIA), year);
+            assertNotNull(loaded, "year " + year);
+            assertEquals(DayType.NOT_WORKING_DAY, loaded.getDayType(0), "year " + year);
+        }
+        assertTrue(records(store) <= 2 * WRITER_YEARS, "records " + records(store));
+        store.close();
+    }
+
+    private static final int WRITER_FIRST_YEAR = 1950;
+    private static final int WRITER_YEARS = 100;
+
+    /**
+     * Процесс для processesShareFile: в момент args[1] записывает годы в файл args[0] пять раз,
+     * в последний раз - с выходным 1 января
+     */
+    public static void main(String[] args) throws Exception {
+        IsDayOffBinaryStore store = IsDayOffBinaryStore.open(new File(args[0]));
+        Thread.sleep(Math.max(0, Long.parseLong(args[1]) - System.currentTimeMillis()));
+        for (char holiday : new char[]{'0', '0', '0', '0', '1'}) {
+            for (int year = WRITER_FIRST_YEAR; year < WRITER_FIRST_YEAR + WRITER_YEARS; year++) {
+                store.storeYear(props(LocalesType.RUSSIA), year(year, holiday));
+            }
+        }
+        store.close();
+    }
+}
@@ -0,0 +1,64 @@
+package com.groupstp.isdayoff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffCircuitBreakerTest {
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        IsDayOffCircuitBreaker breaker = new IsDayOffCircuitBreaker(3, HOUR);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.isOpen());
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void allowsSingleTrialAfterOpenTime() {
+        IsDayOffCircuitBreaker breaker = new IsDayOffCircuitBreaker(1, 0);
+        breaker.onFailure();
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+
+        breaker.onFailure();
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedTrialKeepsCircuitOpen() {
+        IsDayOffCircuitBreaker breaker = new IsDayOffCircuitBreaker(2, HOUR);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void zeroThresholdNeverOpens() {
+        IsDayOffCircuitBreaker breaker = new IsDayOffCircuitBreaker(0, HOUR);
+        for (int i = 0; i < 100; i++) {
+            breaker.onFailure();
+        }
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,113 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffClassifierTest {
+    private static final int SIZE = IsDayOffClassifier.PARALLEL_THRESHOLD * 4;
+    private static final int FAILING_YEAR = 2000;
+
+    /**
+     * Выходные - суббота и воскресенье, 1 января сокращенный, FAILING_YEAR получить не удается
+     */
+    private static IsDayOffYear load(int year) {
+        if (year == FAILING_YEAR) {
+            return null;
+        }
+        StringBuilder days = new StringBuilder();
+        for (LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+            days.append(date.getDayOfYear() == 1 ? '2' : date.getDayOfWeek().getValue() >= 6 ? '1' : '0');
+        }
+        return IsDayOffYear.parse(year, days.toString(), 0);
+    }
+
+    private static IsDayOffClassifier classifier(ForkJoinPool pool) {
+        return new IsDayOffClassifier(IsDayOffClassifierTest::load, pool);
+    }
+
+    /**
+     * Дни 1990-2030 и несколько дней вне поддерживаемых годов
+     */
+    private static int[] epochDays() {
+        Random random = new Random(42);
+        int first = (int) LocalDate.of(1990, 1, 1).toEpochDay();
+        int length = (int) (LocalDate.of(2031, 1, 1).toEpochDay() - first);
+        int[] days = new int[SIZE];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = first + random.nextInt(length);
+        }
+        days[17] = (int) LocalDate.of(1800, 5, 1).toEpochDay();
+        days[SIZE - 3] = (int) LocalDate.of(2300, 5, 1).toEpochDay();
+        return days;
+    }
+
+    @Test
+    void parallelEpochDaysMatchSequential() {
+        int[] days = epochDays();
+        byte[] parallel = new byte[SIZE];
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int parallelErrors = classifier(pool).classify(days, parallel);
+        pool.shutdown();
+
+        byte[] sequential = new byte[SIZE];
+        int sequentialErrors = 0;
+        int chunk = IsDayOffClassifier.PARALLEL_THRESHOLD - 1;
+        for (int from = 0; from < SIZE; from += chunk) {
+            int to = Math.min(SIZE, from + chunk);
+            byte[] out = new byte[to - from];
+            sequentialErrors += classifier(ForkJoinPool.commonPool()).classify(Arrays.copyOfRange(days, from, to), out);
+            System.arraycopy(out, 0, sequential, from, out.length);
+        }
+
+        assertArrayEquals(sequential, parallel);
+        assertEquals(sequentialErrors, parallelErrors);
+        assertTrue(parallelErrors > 2);
+        assertEquals(DayType.ERROR_DATE.getCode(), parallel[17]);
+        assertEquals(DayType.ERROR_DATE.getCode(), parallel[SIZE - 3]);
+        for (int i = 0; i < SIZE; i++) {
+            LocalDate date = LocalDate.ofEpochDay(days[i]);
+            if (date.getYear() == FAILING_YEAR) {
+                assertEquals(DayType.SERVER_ERROR.getCode(), parallel[i]);
+            } else if (IsDayOffIndex.isSupported(date.getYear())) {
+                assertEquals(load(date.getYear()).getDayType(date.getDayOfYear() - 1).getCode(), parallel[i]);
+            }
+        }
+    }
+
+    @Test
+    void parallelDatesMatchSequential() {
+        int[] days = epochDays();
+        LocalDate[] dates = new LocalDate[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            dates[i] = i % 1000 == 0 ? null : LocalDate.ofEpochDay(days[i]);
+        }
+        DayType[] parallel = new DayType[SIZE];
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int parallelErrors = classifier(pool).classify(dates, parallel);
+        pool.shutdown();
+
+        DayType[] sequential = new DayType[SIZE];
+        int sequentialErrors = 0;
+        int chunk = IsDayOffClassifier.PARALLEL_THRESHOLD - 1;
+        for (int from = 0; from < SIZE; from += chunk) {
+            int to = Math.min(SIZE, from + chunk);
+            DayType[] out = new DayType[to - from];
+            sequentialErrors += classifier(ForkJoinPool.commonPool()).classify(Arrays.copyOfRange(dates, from, to), out);
+            System.arraycopy(out, 0, sequential, from, out.length);
+        }
+
+        assertArrayEquals(sequential, parallel);
+        assertEquals(sequentialErrors, parallelErrors);
+        assertEquals(DayType.ERROR_DATE, parallel[0]);
+        assertEquals(DayType.ERROR_DATE, parallel[17]);
+    }
+}
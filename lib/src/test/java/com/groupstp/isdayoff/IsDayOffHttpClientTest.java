@@ -0,0 +1,89 @@
+package com.groupstp.isdayoff;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffHttpClientTest {
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch hanging = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private String url;
+
+    /**
+     * Первый запрос - 503, второй зависает, остальные - 200
+     */
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            int request = requests.incrementAndGet();
+            if (request == 1) {
+                respond(exchange, 503, "");
+                return;
+            }
+            if (request == 2) {
+                hanging.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange, 200, "ok");
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void interruptedTrialReleasesCircuit() throws Exception {
+        IsDayOffHttpClient client = new IsDayOffHttpClient(new IsDayOffBuilder()
+                .setRetries(0, Duration.ofMillis(1))
+                .setCircuitBreaker(1, Duration.ZERO), "test");
+        assertNull(client.request(url));
+
+        String[] trialResult = {"not finished"};
+        Thread trial = new Thread(() -> trialResult[0] = client.request(url));
+        trial.start();
+        assertTrue(hanging.await(5, TimeUnit.SECONDS));
+        trial.interrupt();
+        trial.join(5000);
+        assertNull(trialResult[0]);
+
+        assertEquals("ok", client.request(url));
+        assertEquals(3, requests.get());
+    }
+}
@@ -0,0 +1,23 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.LocalesType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class IsDayOffIndexTest {
+    private static IsDayOffBuilder builder() {
+        return new IsDayOffBuilder().setLocale(LocalesType.KAZAKHSTAN).setCacheDir("index-test");
+    }
+
+    @Test
+    void sharedOnlyBetweenEqualSettings() {
+        IsDayOffIndex index = IsDayOffIndex.shared(builder());
+        assertSame(index, IsDayOffIndex.shared(builder()));
+        assertNotSame(index, IsDayOffIndex.shared(builder().setBaseUrl("http://localhost:8080/api/")));
+        assertNotSame(index, IsDayOffIndex.shared(builder().setCacheDir("index-test-other")));
+        assertNotSame(index, IsDayOffIndex.shared(builder().setCacheStorageDays(1)));
+        assertNotSame(index, IsDayOffIndex.shared(builder().addPreHolidaysDay()));
+    }
+}
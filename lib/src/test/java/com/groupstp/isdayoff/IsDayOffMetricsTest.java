@@ -0,0 +1,37 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.LocalesType;
+import com.groupstp.isdayoff.enums.LookupSourceType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffMetricsTest {
+    @Test
+    void countsByRequestParametersAndYear() {
+        IsDayOffProps plain = new IsDayOffProps(new IsDayOffBuilder().setLocale(LocalesType.RUSSIA));
+        IsDayOffProps shortDays = new IsDayOffProps(new IsDayOffBuilder().setLocale(LocalesType.RUSSIA).addPreHolidaysDay());
+        IsDayOffMetrics metrics = new IsDayOffMetrics();
+        for (int i = 0; i < 3; i++) {
+            metrics.onLookup(plain, 2021, LookupSourceType.MEMORY, true);
+        }
+        metrics.onLookup(shortDays, 2021, LookupSourceType.MEMORY, true);
+        metrics.onLookup(plain, 1800, LookupSourceType.MEMORY, true);
+        metrics.onRefresh(shortDays, 2022, false);
+
+        Map<String, Long> hits = metrics.getMemoryHits();
+        assertEquals(3, hits.size());
+        assertEquals(Long.valueOf(3), hits.get(plain + "/2021"));
+        assertEquals(Long.valueOf(1), hits.get(shortDays + "/2021"));
+        assertEquals(Long.valueOf(1), hits.get(plain + "/1800"));
+        assertEquals(Long.valueOf(1), metrics.getRefreshFailures().get(shortDays + "/2022"));
+        assertEquals("RUSSIA;pre=1;covid=0;sd=0", shortDays.toString());
+
+        metrics.reset();
+        assertTrue(metrics.getMemoryHits().isEmpty());
+        assertTrue(metrics.getRefreshFailures().isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IsDayOffOverlayTest {
+    /**
+     * 2021 год, где все дни рабочие
+     */
+    private static IsDayOffYear workingYear() {
+        return IsDayOffYear.parse(2021, "0".repeat(365), 42);
+    }
+
+    private static DayType dayType(IsDayOffYear year, int month, int day) {
+        return year.getDayType(LocalDate.of(year.getYear(), month, day).getDayOfYear() - 1);
+    }
+
+    @Test
+    void laterRulesWin() {
+        IsDayOffOverlay overlay = IsDayOffOverlay.EMPTY
+                .with(LocalDate.of(2021, 5, 1), LocalDate.of(2021, 5, 10), DayType.NOT_WORKING_DAY)
+                .with(LocalDate.of(2021, 5, 3), LocalDate.of(2021, 5, 3), DayType.SHORT_DAY);
+        IsDayOffYear year = overlay.apply(workingYear());
+        assertEquals(DayType.WORKING_DAY, dayType(year, 4, 30));
+        assertEquals(DayType.NOT_WORKING_DAY, dayType(year, 5, 1));
+        assertEquals(DayType.SHORT_DAY, dayType(year, 5, 3));
+        assertEquals(DayType.NOT_WORKING_DAY, dayType(year, 5, 10));
+        assertEquals(DayType.WORKING_DAY, dayType(year, 5, 11));
+        assertEquals(42, year.getFetchedAt());
+
+        long may3 = LocalDate.of(2021, 5, 3).toEpochDay();
+        assertEquals(DayType.SHORT_DAY, overlay.apply(may3, DayType.WORKING_DAY));
+        assertEquals("1211", overlay.apply("0000", may3 - 1));
+
+        IsDayOffOverlay reversed = IsDayOffOverlay.EMPTY
+                .with(LocalDate.of(2021, 5, 3), LocalDate.of(2021, 5, 3), DayType.SHORT_DAY)
+                .with(LocalDate.of(2021, 5, 1), LocalDate.of(2021, 5, 10), DayType.NOT_WORKING_DAY);
+        assertEquals(DayType.NOT_WORKING_DAY, dayType(reversed.apply(workingYear()), 5, 3));
+    }
+
+    @Test
+    void ordinalRulesFromStartAndEndOfMonth() {
+        IsDayOffOverlay lastFriday = IsDayOffOverlay.EMPTY.with(null, -1, DayOfWeek.FRIDAY, DayType.SHORT_DAY);
+        IsDayOffYear year = lastFriday.apply(workingYear());
+        assertEquals(DayType.SHORT_DAY, dayType(year, 1, 29));
+        assertEquals(DayType.WORKING_DAY, dayType(year, 1, 22));
+        assertEquals(DayType.SHORT_DAY, dayType(year, 12, 31));
+        assertEquals(12, count(year, DayType.SHORT_DAY));
+
+        IsDayOffOverlay secondTuesdayOfMarch = IsDayOffOverlay.EMPTY.with(Month.MARCH, 2, DayOfWeek.TUESDAY, DayType.NOT_WORKING_DAY);
+        year = secondTuesdayOfMarch.apply(workingYear());
+        assertEquals(DayType.NOT_WORKING_DAY, dayType(year, 3, 9));
+        assertEquals(1, count(year, DayType.NOT_WORKING_DAY));
+    }
+
+    @Test
+    void fifthWeekdaySkipsMonthsWithoutIt() {
+        IsDayOffOverlay fifthMonday = IsDayOffOverlay.EMPTY.with(null, 5, DayOfWeek.MONDAY, DayType.NOT_WORKING_DAY);
+        IsDayOffYear year = fifthMonday.apply(workingYear());
+        assertEquals(DayType.NOT_WORKING_DAY, dayType(year, 3, 29));
+        assertEquals(DayType.NOT_WORKING_DAY, dayType(year, 5, 31));
+        assertEquals(DayType.NOT_WORKING_DAY, dayType(year, 8, 30));
+        assertEquals(DayType.NOT_WORKING_DAY, dayType(year, 11, 29));
+        assertEquals(4, count(year, DayType.NOT_WORKING_DAY));
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        for (int ordinal : new int[]{0, 6, -6}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> IsDayOffOverlay.EMPTY.with(null, ordinal, DayOfWeek.MONDAY, DayType.NOT_WORKING_DAY));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> IsDayOffOverlay.EMPTY.with(LocalDate.of(2021, 5, 2), LocalDate.of(2021, 5, 1), DayType.NOT_WORKING_DAY));
+        assertThrows(IllegalArgumentException.class,
+                () -> IsDayOffOverlay.EMPTY.with(LocalDate.of(2021, 5, 1), LocalDate.of(2021, 5, 1), DayType.ERROR_DATE));
+    }
+
+    @Test
+    void keepsErrorsAndUntouchedYears() {
+        IsDayOffOverlay overlay = IsDayOffOverlay.EMPTY
+                .with(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 8), DayType.NOT_WORKING_DAY);
+        IsDayOffYear year = workingYear();
+        assertSame(year, overlay.apply(year));
+        long epochDay = LocalDate.of(2022, 1, 3).toEpochDay();
+        assertEquals(DayType.SERVER_ERROR, overlay.apply(epochDay, DayType.SERVER_ERROR));
+        assertEquals("199", overlay.apply("199", epochDay));
+    }
+
+    @Test
+    void equalRulesGiveEqualOverlays() {
+        IsDayOffOverlay first = IsDayOffOverlay.EMPTY.with(Month.MAY, 1, DayOfWeek.MONDAY, DayType.NOT_WORKING_DAY);
+        IsDayOffOverlay second = IsDayOffOverlay.EMPTY.with(Month.MAY, 1, DayOfWeek.MONDAY, DayType.NOT_WORKING_DAY);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    private static int count(IsDayOffYear year, DayType type) {
+        int count = 0;
+        for (int day = 0; day < year.length(); day++) {
+            if (year.getDayType(day) == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,127 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import com.groupstp.isdayoff.enums.LocalesType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IsDayOffPlannerTest {
+    private static final String BASE_URL = "http://localhost/api/";
+
+    private static IsDayOffProps props() {
+        return new IsDayOffProps(new IsDayOffBuilder().setLocale(LocalesType.RUSSIA));
+    }
+
+    /**
+     * Ответ сервиса на отрезок: для каждого дня последняя цифра года, чтобы было видно, как ответ разделен
+     */
+    private static String days(LocalDate from, LocalDate to) {
+        StringBuilder days = new StringBuilder();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            days.append(date.getYear() % 2);
+        }
+        return days.toString();
+    }
+
+    private static String year(int year) {
+        return days(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+    }
+
+    private static IsDayOffPlanner planner(int maxRangeDays) {
+        return new IsDayOffPlanner(Duration.ofMillis(200), 4, 0, maxRangeDays);
+    }
+
+    /**
+     * Запрос к сервису, запоминающий отрезки
+     */
+    private static BiFunction<LocalDate, LocalDate, CompletableFuture<String>> upstream(
+            List<String> calls, BiFunction<LocalDate, LocalDate, String> response) {
+        return (from, to) -> {
+            calls.add(from + "/" + to);
+            return CompletableFuture.completedFuture(response.apply(from, to));
+        };
+    }
+
+    @Test
+    void mergesAdjacentYearsAndSplitsResponse() {
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        BiFunction<LocalDate, LocalDate, CompletableFuture<String>> upstream = upstream(calls, IsDayOffPlannerTest::days);
+        IsDayOffPlanner planner = planner(3 * 366);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        int[] years = {2019, 2020, 2021, 2022, 2024};
+        for (int year : years) {
+            futures.add(planner.requestYear(BASE_URL, props(), year, upstream));
+        }
+        for (int i = 0; i < years.length; i++) {
+            assertEquals(year(years[i]), futures.get(i).join());
+        }
+        Collections.sort(calls);
+        assertEquals(List.of("2019-01-01/2021-12-31", "2022-01-01/2022-12-31", "2024-01-01/2024-12-31"), calls);
+    }
+
+    @Test
+    void defaultRangeRequestsEveryYearOnce() {
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        BiFunction<LocalDate, LocalDate, CompletableFuture<String>> upstream = upstream(calls, IsDayOffPlannerTest::days);
+        IsDayOffPlanner planner = planner(IsDayOffPlanner.API_MAX_RANGE_DAYS);
+        IsDayOffProps withRules = new IsDayOffProps(new IsDayOffBuilder()
+                .setLocale(LocalesType.RUSSIA)
+                .addOverride(LocalDate.of(2020, 1, 1), DayType.WORKING_DAY));
+        CompletableFuture<String> first = planner.requestYear(BASE_URL, props(), 2020, upstream);
+        CompletableFuture<String> second = planner.requestYear(BASE_URL, withRules, 2020, upstream(calls, IsDayOffPlannerTest::days));
+        CompletableFuture<String> next = planner.requestYear(BASE_URL, props(), 2021, upstream);
+        assertEquals(year(2020), first.join());
+        assertEquals(year(2020), second.join());
+        assertEquals(year(2021), next.join());
+        Collections.sort(calls);
+        assertEquals(List.of("2020-01-01/2020-12-31", "2021-01-01/2021-12-31"), calls);
+    }
+
+    @Test
+    void requestsYearsOneByOneWhenMergedResponseHasWrongLength() {
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        BiFunction<LocalDate, LocalDate, CompletableFuture<String>> upstream = upstream(calls,
+                (from, to) -> from.getYear() == to.getYear() ? days(from, to) : "100");
+        IsDayOffPlanner planner = planner(3 * 366);
+        CompletableFuture<String> first = planner.requestYear(BASE_URL, props(), 2020, upstream);
+        CompletableFuture<String> second = planner.requestYear(BASE_URL, props(), 2021, upstream);
+        assertEquals(year(2020), first.join());
+        assertEquals(year(2021), second.join());
+        Collections.sort(calls);
+        assertEquals(List.of("2020-01-01/2020-12-31", "2020-01-01/2021-12-31", "2021-01-01/2021-12-31"), calls);
+    }
+
+    @Test
+    void failedRequestGoesThroughNextInstance() {
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        List<String> succeeded = Collections.synchronizedList(new ArrayList<>());
+        IsDayOffPlanner planner = planner(IsDayOffPlanner.API_MAX_RANGE_DAYS);
+        CompletableFuture<String> first = planner.requestYear(BASE_URL, props(), 2021, upstream(failed, (from, to) -> null));
+        CompletableFuture<String> second = planner.requestYear(BASE_URL, props(), 2021, upstream(succeeded, IsDayOffPlannerTest::days));
+        assertEquals(year(2021), first.join());
+        assertEquals(year(2021), second.join());
+        assertEquals(1, failed.size());
+        assertEquals(1, succeeded.size());
+    }
+
+    @Test
+    void failedRequestWithoutOtherInstancesReturnsNull() {
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        IsDayOffPlanner planner = planner(3 * 366);
+        CompletableFuture<String> first = planner.requestYear(BASE_URL, props(), 2020, upstream(calls, (from, to) -> {
+            throw new IllegalStateException("offline");
+        }));
+        assertNull(first.join());
+        assertEquals(1, calls.size());
+    }
+}
@@ -0,0 +1,83 @@
+package com.groupstp.isdayoff;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffRefresherTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static IsDayOffBuilder builder() {
+        return new IsDayOffBuilder()
+                .setCacheStorageDays(1)
+                .setRefreshAhead(Duration.ZERO)
+                .setRefreshJitter(Duration.ZERO);
+    }
+
+    private static IsDayOffYear year(long fetchedAt) {
+        return IsDayOffYear.parse(2021, "0".repeat(365), fetchedAt);
+    }
+
+    @Test
+    void expiredYearIsRefreshedOnce() throws InterruptedException {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch fetched = new CountDownLatch(1);
+        IsDayOffRefresher refresher = new IsDayOffRefresher(builder(), year -> {
+            fetches.incrementAndGet();
+            fetched.countDown();
+            return CompletableFuture.completedFuture(year(System.currentTimeMillis()));
+        }, year -> null);
+        IsDayOffYear expired = year(System.currentTimeMillis() - 2 * DAY);
+        refresher.schedule(expired);
+        refresher.schedule(expired);
+        assertTrue(fetched.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, fetches.get());
+        // Задачи держат обновление через слабую ссылку
+        Reference.reachabilityFence(refresher);
+    }
+
+    @Test
+    void yearRefreshedByAnotherInstanceIsNotFetched() throws InterruptedException {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch checked = new CountDownLatch(1);
+        IsDayOffYear fresh = year(System.currentTimeMillis());
+        IsDayOffRefresher refresher = new IsDayOffRefresher(builder(), year -> {
+            fetches.incrementAndGet();
+            return CompletableFuture.completedFuture(fresh);
+        }, year -> {
+            checked.countDown();
+            return fresh;
+        });
+        refresher.schedule(year(System.currentTimeMillis() - 2 * DAY));
+        assertTrue(checked.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(0, fetches.get());
+        Reference.reachabilityFence(refresher);
+    }
+
+    @Test
+    void failedRefreshIsRetriedLater() throws InterruptedException {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch fetched = new CountDownLatch(1);
+        IsDayOffRefresher refresher = new IsDayOffRefresher(builder(), year -> {
+            fetches.incrementAndGet();
+            fetched.countDown();
+            return CompletableFuture.completedFuture(null);
+        }, year -> null);
+        refresher.schedule(year(System.currentTimeMillis() - 2 * DAY));
+        assertTrue(fetched.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, fetches.get());
+        // Задачи держат обновление через слабую ссылку
+        Reference.reachabilityFence(refresher);
+    }
+}
@@ -0,0 +1,56 @@
+package com.groupstp.isdayoff;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffRetryBudgetTest {
+    private static int drain(IsDayOffRetryBudget budget) {
+        int retries = 0;
+        while (budget.tryRetry()) {
+            retries++;
+        }
+        return retries;
+    }
+
+    @Test
+    void startsWithFullReserve() {
+        IsDayOffRetryBudget budget = new IsDayOffRetryBudget(0.1);
+        assertEquals(10, drain(budget));
+        assertFalse(budget.tryRetry());
+    }
+
+    @Test
+    void requestsEarnRetriesByRatio() {
+        IsDayOffRetryBudget budget = new IsDayOffRetryBudget(0.1);
+        drain(budget);
+        for (int i = 0; i < 9; i++) {
+            budget.onRequest();
+        }
+        assertFalse(budget.tryRetry());
+        budget.onRequest();
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+    }
+
+    @Test
+    void reserveIsCapped() {
+        IsDayOffRetryBudget budget = new IsDayOffRetryBudget(1);
+        for (int i = 0; i < 1000; i++) {
+            budget.onRequest();
+        }
+        assertEquals(10, drain(budget));
+    }
+
+    @Test
+    void sharedPerHost() {
+        IsDayOffRetryBudget budget = IsDayOffRetryBudget.shared("https://budget-test.example/api/", 0.1);
+        assertSame(budget, IsDayOffRetryBudget.shared("https://budget-test.example/other/", 0.1));
+        assertNotSame(budget, IsDayOffRetryBudget.shared("https://budget-test-other.example/api/", 0.1));
+        assertNotSame(budget, IsDayOffRetryBudget.shared("https://budget-test.example/api/", 0.2));
+    }
+}
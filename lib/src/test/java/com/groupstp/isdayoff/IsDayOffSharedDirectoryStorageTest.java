@@ -0,0 +1,90 @@
+package com.groupstp.isdayoff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffSharedDirectoryStorageTest {
+    private static final int PROCESSES = 2;
+    private static final int LOADS = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void processesLoadYearOneAtATime() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Path log = dir.resolve("log.txt");
+        String start = String.valueOf(System.currentTimeMillis() + 2000);
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < PROCESSES; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    IsDayOffSharedDirectoryStorageTest.class.getName(), dir.toString(), log.toString(), "p" + i, start)
+                    .inheritIO()
+                    .start());
+        }
+        for (Process process : processes) {
+            assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+            assertEquals(0, process.exitValue());
+        }
+
+        List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+        assertEquals(2 * PROCESSES * LOADS, lines.size());
+        for (int i = 0; i < lines.size(); i += 2) {
+            assertTrue(lines.get(i).startsWith("+"), "line " + i + ": " + lines.get(i));
+            assertEquals("-" + lines.get(i).substring(1), lines.get(i + 1), "line " + (i + 1));
+        }
+    }
+
+    /**
+     * Процесс для processesLoadYearOneAtATime: в момент args[3] загружает один год LOADS раз из нескольких потоков.
+     * Загрузка пишет в журнал args[1] строки "+id" и "-id" с паузой между ними, поэтому пересечение загрузок
+     * разрывает пары строк
+     */
+    public static void main(String[] args) throws Exception {
+        IsDayOffSharedDirectoryStorage storage = new IsDayOffSharedDirectoryStorage(args[0]);
+        IsDayOffProps properties = new IsDayOffProps(new IsDayOffBuilder());
+        Path log = Path.of(args[1]);
+        String id = args[2];
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Thread.sleep(Math.max(0, Long.parseLong(args[3]) - System.currentTimeMillis()));
+        List<CompletableFuture<Void>> loads = new ArrayList<>();
+        for (int i = 0; i < LOADS; i++) {
+            String entry = id + "." + i;
+            loads.add(storage.exclusive(properties, 2024, executor, () -> CompletableFuture.runAsync(() -> {
+                append(log, "+" + entry);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                append(log, "-" + entry);
+            }, executor)));
+        }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    private static void append(Path log, String line) {
+        try {
+            Files.write(log, (line + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.CacheFormatType;
+import com.groupstp.isdayoff.enums.DayType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffTest {
+    @Test
+    void unsupportedYearsAreNotRequested() {
+        List<String> requests = new CopyOnWriteArrayList<>();
+        IsDayOff isDayOff = new IsDayOffBuilder()
+                .setBaseUrl("http://127.0.0.1:9/unsupported-years/")
+                .setCacheFormat(CacheFormatType.MEMORY)
+                .setRetries(0, Duration.ofMillis(1))
+                .setListener(new IsDayOffListener() {
+                    @Override
+                    public void onRequestStart(String url) {
+                        requests.add(url);
+                    }
+                })
+                .build();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(DayType.ERROR_DATE, isDayOff.dayType(LocalDate.of(1800, 1, 1)));
+            assertEquals(DayType.ERROR_DATE, isDayOff.dayType((int) LocalDate.of(2300, 6, 1).toEpochDay()));
+            assertEquals(DayType.ERROR_DATE, isDayOff.dayTypeAsync(LocalDate.of(1899, 12, 31)).join());
+            assertNull(isDayOff.addWorkingDays(LocalDate.of(2200, 1, 1), 1));
+        }
+        assertEquals(DayType.SERVER_ERROR, isDayOff.dayType(LocalDate.of(2021, 1, 1)));
+        assertTrue(requests.stream().anyMatch(url -> url.contains("year=2021")));
+        for (String year : new String[]{"year=1800", "year=1899", "year=2200", "year=2300"}) {
+            assertFalse(requests.stream().anyMatch(url -> url.contains(year)), year);
+        }
+    }
+}
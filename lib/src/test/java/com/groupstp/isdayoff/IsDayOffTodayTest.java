@@ -0,0 +1,75 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffTodayTest {
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private final Map<Integer, IsDayOffYear> years = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    /**
+     * За миллисекунду до полуночи 1 января 2022 года по Москве
+     */
+    private final AtomicLong clock = new AtomicLong(
+            LocalDateTime.of(2022, 1, 1, 0, 0).atZone(MOSCOW).toInstant().toEpochMilli() - 1);
+
+    /**
+     * 31 декабря 2021 сокращенный, 1 января 2022 выходной, остальные дни рабочие
+     */
+    private IsDayOffToday today() {
+        years.put(2021, IsDayOffYear.parse(2021, "0".repeat(364) + "2", 0));
+        years.put(2022, IsDayOffYear.parse(2022, "1" + "0".repeat(364), 0));
+        return new IsDayOffToday(year -> {
+            loads.incrementAndGet();
+            return years.get(year);
+        }, years::get, Runnable::run, null, clock::get);
+    }
+
+    @Test
+    void rollsOverAtMidnight() {
+        IsDayOffToday today = today();
+        assertEquals(DayType.SHORT_DAY, today.today(MOSCOW));
+        assertEquals(DayType.NOT_WORKING_DAY, today.tomorrow(MOSCOW));
+
+        clock.incrementAndGet();
+        assertEquals(DayType.NOT_WORKING_DAY, today.today(MOSCOW));
+        assertEquals(DayType.WORKING_DAY, today.tomorrow(MOSCOW));
+    }
+
+    @Test
+    void schedulerRecomputesWithoutQueries() throws InterruptedException {
+        IsDayOffToday today = today();
+        assertEquals(DayType.SHORT_DAY, today.today(MOSCOW));
+        int before = loads.get();
+
+        clock.incrementAndGet();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loads.get() == before && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(loads.get() > before, "пересчет в полночь не выполнен");
+        int after = loads.get();
+        assertEquals(DayType.NOT_WORKING_DAY, today.today(MOSCOW));
+        assertEquals(after, loads.get());
+    }
+
+    @Test
+    void changedYearIsReloadedBeforeMidnight() {
+        IsDayOffToday today = today();
+        assertEquals(DayType.SHORT_DAY, today.today(MOSCOW));
+        years.put(2021, IsDayOffYear.parse(2021, "0".repeat(365), 0));
+        assertEquals(DayType.WORKING_DAY, today.today(MOSCOW));
+    }
+}
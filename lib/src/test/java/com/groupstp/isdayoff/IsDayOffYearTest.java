@@ -0,0 +1,97 @@
+package com.groupstp.isdayoff;
+
+import com.groupstp.isdayoff.enums.DayType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Year;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsDayOffYearTest {
+    /**
+     * Год, где выходные - субботы и воскресенья, 1 марта сокращенный, 2 марта рабочий в пандемию
+     */
+    private static String days(int year) {
+        StringBuilder days = new StringBuilder();
+        for (LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+            if (date.getMonthValue() == 3 && date.getDayOfMonth() == 1) {
+                days.append('2');
+            } else if (date.getMonthValue() == 3 && date.getDayOfMonth() == 2) {
+                days.append('4');
+            } else {
+                days.append(date.getDayOfWeek().getValue() >= 6 ? '1' : '0');
+            }
+        }
+        return days.toString();
+    }
+
+    @Test
+    void parsesEveryDayType() {
+        for (int y : new int[]{2020, 2021, 2100}) {
+            String days = days(y);
+            IsDayOffYear year = IsDayOffYear.parse(y, days, 42);
+            assertEquals(days, year.getDays(0, year.length()));
+            assertEquals(Year.of(y).length(), year.length());
+            assertEquals(42, year.getFetchedAt());
+            assertEquals(DayType.SHORT_DAY, year.getDayType(LocalDate.of(y, 3, 1).getDayOfYear() - 1));
+            assertEquals(DayType.WORKING_DAY_COVID, year.getDayType(LocalDate.of(y, 3, 2).getDayOfYear() - 1));
+        }
+    }
+
+    @Test
+    void rejectsInvalidData() {
+        assertNull(IsDayOffYear.parse(2021, null, 0));
+        assertNull(IsDayOffYear.parse(2021, days(2020), 0));
+        assertNull(IsDayOffYear.parse(2020, days(2021), 0));
+        assertNull(IsDayOffYear.parse(2021, days(2021).replace('4', '3'), 0));
+    }
+
+    @Test
+    void workingPrefixMatchesDayByDayCount() {
+        for (int y : new int[]{2020, 2021}) {
+            IsDayOffYear year = IsDayOffYear.parse(y, days(y), 0);
+            int count = 0;
+            for (int day = 0; day < year.length(); day++) {
+                assertEquals(count, year.countWorkingDays(0, day));
+                if (year.getDayType(day).isWorkingDay()) {
+                    count++;
+                    assertEquals(day, year.indexOfWorkingDay(count));
+                }
+            }
+            assertEquals(count, year.getWorkingDays());
+            assertEquals(count, year.countWorkingDays(0, year.length()));
+            assertEquals(-1, year.indexOfWorkingDay(0));
+            assertEquals(-1, year.indexOfWorkingDay(count + 1));
+        }
+    }
+
+    @Test
+    void runsCoverSameTypeDays() {
+        IsDayOffYear year = IsDayOffYear.parse(2020, days(2020), 0);
+        for (int day = 0; day < year.length(); day++) {
+            int start = year.getRunStart(day);
+            int end = year.getRunEnd(day);
+            assertTrue(start <= day && day < end);
+            for (int i = start; i < end; i++) {
+                assertEquals(year.getDayType(day), year.getDayType(i));
+            }
+            assertTrue(start == 0 || year.getDayType(start - 1) != year.getDayType(day));
+            assertTrue(end == year.length() || year.getDayType(end) != year.getDayType(day));
+        }
+    }
+
+    @Test
+    void epochDayConversionsAcrossLeapAndCenturyYears() {
+        for (int y : new int[]{1600, 1700, 1899, 1900, 1969, 1970, 1999, 2000, 2024, 2100, 2199, 2400}) {
+            long first = LocalDate.of(y, 1, 1).toEpochDay();
+            assertEquals(first, IsDayOffYear.firstEpochDay(y), "firstEpochDay " + y);
+            assertEquals(y, IsDayOffYear.yearOfEpochDay(first), "first day of " + y);
+            assertEquals(y - 1, IsDayOffYear.yearOfEpochDay(first - 1), "last day before " + y);
+            assertEquals(y, IsDayOffYear.yearOfEpochDay(LocalDate.of(y, 12, 31).toEpochDay()), "last day of " + y);
+            assertEquals(y, IsDayOffYear.yearOfEpochDay(LocalDate.of(y, 2, 28).toEpochDay() + 1), "day after Feb 28 " + y);
+        }
+    }
+}